@@ -0,0 +1,240 @@
+package org.soraworld.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.HoconException;
+import org.soraworld.hocon.util.Lexer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 拉取式读取器.<br>
+ * 按与 {@link org.soraworld.hocon.node.NodeMap} 相同的语法逐个产生事件, 不构建结点树,<br>
+ * 内存占用与文件大小无关, 只与嵌套层数有关.<br>
+ * 根结点是隐式的映射, 不产生 {@link #START_MAP} 事件.
+ * <pre>{@code
+ * try (HoconReader reader = new HoconReader(file)) {
+ *     byte event;
+ *     while ((event = reader.next()) != HoconReader.EOF) {
+ *         if (event == HoconReader.KEY) {
+ *             System.out.println(reader.text());
+ *         }
+ *     }
+ * }
+ * }</pre>
+ *
+ * @author Himmelt
+ */
+public final class HoconReader implements Closeable {
+
+    /**
+     * 事件类型.
+     */
+    public static final byte EOF = -1, START_MAP = 0, KEY = 1, VALUE = 2, START_LIST = 3, END = 4, COMMENT = 5;
+
+    private static final byte NONE = -1;
+    private static final byte MAP = 0, LIST = 1;
+
+    private final Reader reader;
+    private final Lexer lexer;
+    private byte[] stack = new byte[16];
+    private int depth;
+    private byte pending = NONE;
+    private byte event = NONE;
+    private boolean afterKey;
+    private boolean empty;
+    private boolean head;
+    private boolean finished;
+
+    /**
+     * 实例化读取器.
+     *
+     * @param reader 数据来源
+     */
+    public HoconReader(@NotNull Reader reader) {
+        this.reader = reader;
+        this.lexer = new Lexer(reader);
+        this.stack[0] = MAP;
+    }
+
+    /**
+     * 以 UTF-8 编码读取文件.
+     *
+     * @param file 文件
+     * @throws IOException 打开文件异常
+     */
+    public HoconReader(@NotNull File file) throws IOException {
+        this(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取下一个事件.
+     *
+     * @return 事件类型, 读取结束时返回 {@link #EOF}
+     * @throws HoconException 读取或语法异常
+     */
+    public byte next() throws HoconException {
+        empty = false;
+        head = false;
+        if (finished) {
+            return event = EOF;
+        }
+        if (afterKey) {
+            afterKey = false;
+            return event = readValue();
+        }
+        while (true) {
+            byte token;
+            if (pending != NONE) {
+                token = pending;
+                pending = NONE;
+            } else {
+                token = stack[depth] == LIST ? lexer.nextValue(true) : lexer.nextKey();
+            }
+            switch (token) {
+                case Lexer.NEWLINE:
+                case Lexer.COMMA:
+                    continue;
+                case Lexer.EOF:
+                    if (depth > 0) {
+                        // 未闭合的结构, 依次结束
+                        depth--;
+                        pending = Lexer.EOF;
+                        return event = END;
+                    }
+                    finished = true;
+                    return event = EOF;
+                case Lexer.END_MAP:
+                case Lexer.END_LIST:
+                    if (depth == 0) {
+                        finished = true;
+                        return event = EOF;
+                    }
+                    depth--;
+                    return event = END;
+                case Lexer.HEAD:
+                case Lexer.COMMENT:
+                    head = token == Lexer.HEAD;
+                    return event = COMMENT;
+                case Lexer.TEXT:
+                    if (stack[depth] == MAP) {
+                        afterKey = true;
+                        return event = KEY;
+                    }
+                    return event = VALUE;
+                case Lexer.BEGIN_MAP:
+                case Lexer.BEGIN_LIST:
+                    if (stack[depth] == LIST) {
+                        push(token == Lexer.BEGIN_MAP ? MAP : LIST);
+                        return event = token == Lexer.BEGIN_MAP ? START_MAP : START_LIST;
+                    }
+                    throw lexer.error("Unexpected token");
+                default:
+                    throw lexer.error("Unexpected token");
+            }
+        }
+    }
+
+    /**
+     * 跳过当前结构.<br>
+     * 在 {@link #START_MAP} {@link #START_LIST} 之后调用时跳过整个结构(包括其 {@link #END}),<br>
+     * 在 {@link #KEY} 之后调用时跳过该键对应的值, 其他情况无操作.
+     *
+     * @throws HoconException 读取或语法异常
+     */
+    public void skip() throws HoconException {
+        if (afterKey) {
+            byte value = next();
+            if (value == START_MAP || value == START_LIST) {
+                skip();
+            }
+        } else if (event == START_MAP || event == START_LIST) {
+            lexer.skip(event == START_MAP ? Lexer.BEGIN_MAP : Lexer.BEGIN_LIST);
+            depth--;
+        }
+        event = NONE;
+    }
+
+    /**
+     * 当前 {@link #KEY} {@link #VALUE} {@link #COMMENT} 事件的文本.
+     *
+     * @return 文本
+     */
+    public @NotNull String text() {
+        return empty ? "" : lexer.text();
+    }
+
+    /**
+     * 当前 {@link #COMMENT} 事件是否为文件头部注释 {@code #!}.
+     *
+     * @return 是否头部注释
+     */
+    public boolean isHead() {
+        return head;
+    }
+
+    /**
+     * 当前嵌套层数, 根映射为 0.
+     *
+     * @return 嵌套层数
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * 当前事件所在行号.
+     *
+     * @return 行号
+     */
+    public int line() {
+        return lexer.line();
+    }
+
+    /**
+     * 当前事件所在列号.
+     *
+     * @return 列号
+     */
+    public int column() {
+        return lexer.column();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private byte readValue() throws HoconException {
+        byte token = lexer.nextKey();
+        if (token == Lexer.ASSIGN) {
+            token = lexer.nextValue(false);
+        } else if (token != Lexer.BEGIN_MAP) {
+            throw lexer.error("Expected '=' or '{' after key");
+        }
+        switch (token) {
+            case Lexer.BEGIN_MAP:
+                push(MAP);
+                return START_MAP;
+            case Lexer.BEGIN_LIST:
+                push(LIST);
+                return START_LIST;
+            case Lexer.TEXT:
+                return VALUE;
+            default:
+                // 空值, 结束记号留给下一次读取
+                pending = token;
+                empty = true;
+                return VALUE;
+        }
+    }
+
+    private void push(byte type) {
+        if (++depth == stack.length) {
+            byte[] grown = new byte[depth << 1];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth] = type;
+    }
+}
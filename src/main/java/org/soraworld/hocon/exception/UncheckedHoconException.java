@@ -0,0 +1,25 @@
+package org.soraworld.hocon.exception;
+
+/**
+ * 非受检的 Hocon 操作异常, 包装在不能声明受检异常的方法中发生的 {@link HoconException}.<br>
+ * 如延迟解析的映射块在首次访问时解析失败.
+ *
+ * @author Himmelt
+ */
+public class UncheckedHoconException extends RuntimeException {
+    private static final long serialVersionUID = -3075927418294306153L;
+
+    /**
+     * 实例化异常.
+     *
+     * @param e 引发异常来源
+     */
+    public UncheckedHoconException(HoconException e) {
+        super(e.getMessage(), e);
+    }
+
+    @Override
+    public synchronized HoconException getCause() {
+        return (HoconException) super.getCause();
+    }
+}
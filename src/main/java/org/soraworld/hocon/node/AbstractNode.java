@@ -1,16 +1,21 @@
 package org.soraworld.hocon.node;
 
 import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.HoconException;
+import org.soraworld.hocon.util.Lexer;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.Writer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
 /**
- * 抽象结点类.
+ * 抽象结点类.<br>
+ * 注意: 旧版本的 protected 字段 {@code options} 和 {@code List<String> comments} 已移除,<br>
+ * 子类请改用 {@link #options()} 获取配置选项, 用 {@link #getComments()} {@link #setComments(List)} 读写注释.
  *
  * @param <T> 封装内容的参数类型
  * @author Himmelt
@@ -22,19 +27,59 @@ abstract class AbstractNode<T> implements Node {
      */
     protected final @NotNull T value;
     /**
-     * 多行注释.
+     * 多行注释, 没有注释时为 null.<br>
+     * 数组不会被原地修改, 复制的结点之间可以直接共享.<br>
+     * 旧版本是 protected 的 {@code List<String>}, 现在只在包内可见, 子类通过 {@link #getComments()} 读取.
      */
-    protected List<String> comments;
+    String[] comments;
     /**
-     * 配置选项.
+     * 父结点, 没有父结点或已冻结时为配置选项.<br>
+     * 配置选项只保存在根结点上, 子结点通过父结点获取.<br>
+     * 取代了旧版本的 protected 字段 {@code options}, 子类通过 {@link #options()} 获取.
      */
-    protected final @NotNull Options options;
+    private @NotNull Object owner;
+    /**
+     * 自上次加载或保存以来是否被修改.
+     */
+    volatile boolean dirty;
+    /**
+     * 是否已冻结, 冻结的结点及其子结点不可修改, 复制时直接共享.
+     */
+    boolean frozen;
     /**
      * 非法字符的正则表达式，匹配该正则时需要对字符串加双引号.
+     *
+     * @deprecated 已不再使用, 是否加双引号由 {@link #quotation(String)} 中的查表扫描判断. 仅为兼容子类保留.
      */
+    @Deprecated
     protected static final Pattern ILLEGAL = Pattern.compile(".*[\":=,+?`!@#$^&*{}\\[\\]\\\\].*");
+    /**
+     * 需要加双引号的 ASCII 字符表, 包括非法字符和需要转义的字符.
+     */
+    private static final boolean[] QUOTE_CHARS = new boolean[128];
+    /**
+     * 转义表, 字符 -> 转义序列的第二个字符.
+     */
+    private static final char[] ESCAPES = new char[128];
+    /**
+     * 反转义表, 转义序列的第二个字符 -> 字符.
+     */
+    private static final char[] UNESCAPES = new char[128];
     protected static final byte TYPE_BASE = 0, TYPE_LIST = 1, TYPE_MAP = 2;
 
+    static {
+        for (char c : "\":=,+?`!@#$^&*{}[]\\".toCharArray()) {
+            QUOTE_CHARS[c] = true;
+        }
+        char[] origins = {'\\', '\b', '\n', '\r', '\t', '"'};
+        char[] escapes = {'\\', 'b', 'n', 'r', 't', '"'};
+        for (int i = 0; i < origins.length; i++) {
+            QUOTE_CHARS[origins[i]] = true;
+            ESCAPES[origins[i]] = escapes[i];
+            UNESCAPES[escapes[i]] = origins[i];
+        }
+    }
+
     /**
      * 初始化一个新结点.
      *
@@ -42,7 +87,7 @@ abstract class AbstractNode<T> implements Node {
      * @param value   封装对象
      */
     protected AbstractNode(@NotNull Options options, @NotNull T value) {
-        this.options = options;
+        this.owner = options;
         this.value = value;
     }
 
@@ -54,60 +99,123 @@ abstract class AbstractNode<T> implements Node {
      * @param comment 注释
      */
     protected AbstractNode(@NotNull Options options, @NotNull T value, @NotNull String comment) {
-        this.options = options;
+        this.owner = options;
         this.value = value;
         addComment(comment);
     }
 
     protected AbstractNode(@NotNull Options options, @NotNull T value, @NotNull List<String> comments) {
-        this.options = options;
+        this.owner = options;
         this.value = value;
         setComments(comments);
     }
 
+    /**
+     * 初始化一个新结点, 直接共享已拆分的注释, 用于复制.
+     *
+     * @param options  配置选项
+     * @param value    封装对象
+     * @param comments 多行注释
+     */
+    AbstractNode(@NotNull Options options, @NotNull T value, String[] comments) {
+        this.owner = options;
+        this.value = value;
+        this.comments = comments;
+    }
+
+    /**
+     * 获取多行注释.<br>
+     * 旧版本返回内部列表, 现在返回的列表不可修改, 修改会抛出 {@link UnsupportedOperationException}.
+     *
+     * @return 不可修改的注释列表, 没有注释时返回 null
+     */
     @Override
     public List<String> getComments() {
-        return comments;
+        return comments == null ? null : Collections.unmodifiableList(Arrays.asList(comments));
     }
 
     @Override
     public final void addComment(@NotNull String comment) {
         if (!comment.isEmpty()) {
-            if (comments == null) {
-                comments = new ArrayList<>();
-            }
-            comments.addAll(Arrays.asList(comment.split("[\n\r]")));
-            comments.removeIf(String::isEmpty);
+            checkMutable();
+            comments = lines(comments, Collections.singletonList(comment));
+            markDirty();
         }
     }
 
     @Override
     public void setComment(@NotNull String comment) {
-        if (comments == null) {
-            comments = new ArrayList<>();
-        } else {
-            comments.clear();
-        }
+        checkMutable();
+        comments = null;
         addComment(comment);
+        markDirty();
     }
 
     @Override
     public final void setComments(List<String> comments) {
-        if (comments != null && !comments.isEmpty()) {
-            this.comments = new ArrayList<>();
-            comments.forEach(s -> this.comments.addAll(Arrays.asList(s.split("[\n\r]"))));
-            this.comments.removeIf(String::isEmpty);
-        } else {
-            this.comments = null;
+        checkMutable();
+        this.comments = comments != null ? lines(null, comments) : null;
+        markDirty();
+    }
+
+    /**
+     * 把文本按换行拆分后追加到已有的行之后, 忽略空行.
+     *
+     * @param head  已有的行, 可以为 null
+     * @param texts 文本
+     * @return 新数组, 没有追加任何行时返回 head
+     */
+    private static String[] lines(String[] head, List<String> texts) {
+        int count = 0;
+        for (String text : texts) {
+            int start = 0, length = text.length();
+            for (int i = 0; i <= length; i++) {
+                if (i == length || text.charAt(i) == '\n' || text.charAt(i) == '\r') {
+                    if (i > start) {
+                        count++;
+                    }
+                    start = i + 1;
+                }
+            }
         }
+        if (count == 0) {
+            return head;
+        }
+        int index = head == null ? 0 : head.length;
+        String[] lines = head == null ? new String[count] : Arrays.copyOf(head, index + count);
+        for (String text : texts) {
+            int start = 0, length = text.length();
+            for (int i = 0; i <= length; i++) {
+                if (i == length || text.charAt(i) == '\n' || text.charAt(i) == '\r') {
+                    if (i > start) {
+                        lines[index++] = start == 0 && i == length ? text : text.substring(start, i);
+                    }
+                    start = i + 1;
+                }
+            }
+        }
+        return lines;
     }
 
     @Override
     public final void writeComment(int indent, BufferedWriter writer) throws IOException {
-        if (comments != null && !comments.isEmpty()) {
+        writeComment(options(), indent, writer);
+    }
+
+    /**
+     * 写注释内容, 使用已解析的配置选项.
+     *
+     * @param options 配置选项
+     * @param indent  缩进级别
+     * @param writer  writer
+     * @throws IOException 写入异常
+     */
+    final void writeComment(@NotNull Options options, int indent, BufferedWriter writer) throws IOException {
+        if (comments != null) {
             for (String comment : comments) {
-                writeIndent(indent, writer);
-                writer.write("# " + comment);
+                writeIndent(options, indent, writer);
+                writer.write("# ");
+                writer.write(comment);
                 writer.newLine();
             }
         }
@@ -115,63 +223,336 @@ abstract class AbstractNode<T> implements Node {
 
     @Override
     public final @NotNull Options options() {
-        return options;
+        Object owner = this.owner;
+        while (owner instanceof AbstractNode) {
+            owner = ((AbstractNode<?>) owner).owner;
+        }
+        return (Options) owner;
+    }
+
+    /**
+     * 父结点.
+     *
+     * @return 父结点, 没有父结点或已冻结时返回 null
+     */
+    final AbstractNode<?> parent() {
+        return owner instanceof AbstractNode ? (AbstractNode<?>) owner : null;
+    }
+
+    /**
+     * 自上次加载或保存以来, 结点或其子结点是否被修改.
+     *
+     * @return 是否被修改
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 是否已冻结.
+     *
+     * @return 是否已冻结
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 冻结结点及全部子结点.<br>
+     * 冻结后结点不可再修改, 修改时抛出 {@link UnsupportedOperationException},<br>
+     * {@link #copy()} 直接返回自身, 放入其他结点时也不再复制, 因此快照和复制的开销为 O(1).<br>
+     * 需要修改时, 使用复制构造函数得到一个浅复制的可修改结点, 其子结点仍然共享.
+     *
+     * @return 自身
+     */
+    public AbstractNode<T> freeze() {
+        detach();
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * 冻结前调用, 冻结的结点可能被多处共享, 不再引用父结点, 只保留配置选项.
+     */
+    final void detach() {
+        if (!frozen) {
+            owner = options();
+        }
+    }
+
+    /**
+     * 检查结点是否可以修改.
+     *
+     * @throws UnsupportedOperationException 结点已冻结
+     */
+    final void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen node can't be modified");
+        }
+    }
+
+    /**
+     * 标记结点已修改, 并向上传播到根结点.<br>
+     * 遇到已标记的祖先结点时停止, 已修改结点的祖先总是已修改的.
+     */
+    final void markDirty() {
+        AbstractNode<?> node = this;
+        while (node != null && !node.dirty) {
+            node.dirty = true;
+            node = node.parent();
+        }
+    }
+
+    /**
+     * 清除结点及全部子结点的修改标记.
+     */
+    void markClean() {
+        if (!frozen) {
+            dirty = false;
+        }
+    }
+
+    /**
+     * 把子结点挂到当前结点下.
+     *
+     * @param node   子结点
+     * @param modify 是否作为一次修改向上传播, 解析产生的子结点为 false
+     */
+    final void attach(Node node, boolean modify) {
+        if (node instanceof AbstractNode && !((AbstractNode<?>) node).frozen) {
+            // 冻结的结点可能被多处共享, 不记录父结点
+            AbstractNode<?> child = (AbstractNode<?>) node;
+            child.owner = this;
+            if (!modify) {
+                child.dirty = false;
+            }
+        }
+        if (modify) {
+            markDirty();
+        }
+    }
+
+    /**
+     * 移除子结点后调用, 被移除的结点不再以本结点为父结点,<br>
+     * 之后对它的修改不会再标记本结点, 也不会使本结点的索引失效.
+     *
+     * @param node 被移除的子结点
+     */
+    final void release(Node node) {
+        if (node instanceof AbstractNode && ((AbstractNode<?>) node).owner == this) {
+            ((AbstractNode<?>) node).owner = options();
+        }
+    }
+
+    /**
+     * 比较结点的内容和注释是否与另一结点相同.
+     *
+     * @param other 另一结点
+     * @return 是否相同
+     */
+    abstract boolean sameAs(Node other);
+
+    /**
+     * 比较注释是否相同, null 与空注释视为相同.
+     *
+     * @param other 另一结点
+     * @return 是否相同
+     */
+    final boolean sameComments(@NotNull Node other) {
+        if (other instanceof AbstractNode) {
+            return Arrays.equals(comments, ((AbstractNode<?>) other).comments);
+        }
+        List<String> others = other.getComments();
+        if (comments == null) {
+            return others == null || others.isEmpty();
+        }
+        return Arrays.asList(comments).equals(others);
     }
 
     /**
      * 尝试给字符串加双引号.<br>
-     * 如果 封装内容 是字符串"null"，或以空格开头或以空格结尾，或含有非法字符,<br>
+     * 如果 封装内容 是空字符串，或以空格开头或以空格结尾，或含有非法字符或转义字符,<br>
      * 则在写入文本文件时会在两端添加双引号.<br>
-     * 同时对转义字符进行转义.
+     * 同时对转义字符进行转义. 不需要处理时直接返回原字符串.
      *
      * @param text 文本内容
      * @return 处理后的文本
      */
     public static String quotation(@NotNull String text) {
-        if (text.startsWith(" ") || text.endsWith(" ") || ILLEGAL.matcher(text).matches()) {
-            String target = text
-                    .replace("\\", "\\\\")
-                    .replace("\b", "\\b")
-                    .replace("\n", "\\n")
-                    .replace("\r", "\\r")
-                    .replace("\t", "\\t")
-                    .replace("\"", "\\\"");
-            return '"' + target + '"';
+        if (!needQuotation(text)) {
+            return text;
         }
-        if (text.isEmpty()) {
-            return "\"\"";
+        StringBuilder builder = new StringBuilder(text.length() + 8).append('"');
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char escape = c < 128 ? ESCAPES[c] : 0;
+            if (escape != 0) {
+                builder.append('\\').append(escape);
+            } else {
+                builder.append(c);
+            }
         }
-        return text;
+        return builder.append('"').toString();
+    }
+
+    /**
+     * 把文本按 {@link #quotation(String)} 的规则直接写入 writer,<br>
+     * 不创建中间字符串.
+     *
+     * @param text   文本内容
+     * @param writer writer
+     * @throws IOException 写入异常
+     */
+    public static void writeQuotation(@NotNull String text, @NotNull Writer writer) throws IOException {
+        if (!needQuotation(text)) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char escape = c < 128 ? ESCAPES[c] : 0;
+            if (escape != 0) {
+                writer.write(text, start, i - start);
+                writer.write('\\');
+                writer.write(escape);
+                start = i + 1;
+            }
+        }
+        writer.write(text, start, length - start);
+        writer.write('"');
     }
 
     /**
      * 给字符串去双引号.<br>
-     * 并反向操作转义字符.
+     * 并反向操作转义字符. 不需要处理时直接返回原字符串.
      *
      * @param text 文本内容
      * @return 处理后的文本
      */
     public static String unquotation(@NotNull String text) {
-        if (text.startsWith("\"")) {
-            text = text.substring(1);
+        int start = text.startsWith("\"") ? 1 : 0;
+        int end = text.length();
+        if (end > start && text.charAt(end - 1) == '"') {
+            end--;
+        }
+        int slash = text.indexOf('\\', start);
+        if (slash < 0 || slash >= end) {
+            return start == 0 && end == text.length() ? text : text.substring(start, end);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(text, start, slash);
+        for (int i = slash; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                char next = text.charAt(++i);
+                char origin = next < 128 ? UNESCAPES[next] : 0;
+                if (origin != 0) {
+                    builder.append(origin);
+                } else {
+                    builder.append(c).append(next);
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 文本是否需要加双引号.
+     *
+     * @param text 文本内容
+     * @return 是否需要
+     */
+    private static boolean needQuotation(@NotNull String text) {
+        int length = text.length();
+        if (length == 0 || text.charAt(0) == ' ' || text.charAt(length - 1) == ' ') {
+            return true;
         }
-        if (text.endsWith("\"")) {
-            text = text.substring(0, text.length() - 1);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 128 && QUOTE_CHARS[c]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据已读取的记号读取一个值结点.
+     *
+     * @param options      配置选项
+     * @param lexer        词法分析器
+     * @param token        已读取的记号
+     * @param keepComments 是否保留注释
+     * @return 值结点, 记号不是值的开始时返回 null
+     * @throws HoconException 解析异常
+     */
+    static Node readNode(@NotNull Options options, @NotNull Lexer lexer, byte token, boolean keepComments) throws HoconException {
+        switch (token) {
+            case Lexer.BEGIN_MAP:
+                NodeMap map = new NodeMap(options);
+                map.readValue(lexer, keepComments);
+                return map;
+            case Lexer.BEGIN_LIST:
+                NodeList list = new NodeList(options);
+                list.readValue(lexer, keepComments);
+                return list;
+            case Lexer.TEXT:
+                return new NodeBase(options, lexer.text());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 写出结点内容, 使用已解析的配置选项.<br>
+     * 配置选项需要从根结点查找, 写出整棵树时只在入口查找一次, 再逐层向下传递.
+     *
+     * @param options 配置选项
+     * @param indent  缩进级别
+     * @param writer  writer
+     * @throws Exception 写入异常
+     */
+    void writeValue(@NotNull Options options, int indent, BufferedWriter writer) throws Exception {
+        writeValue(indent, writer);
+    }
+
+    /**
+     * 写出子结点内容, 子结点不是本库的结点时调用其公开方法.
+     */
+    static void writeValue(Node node, @NotNull Options options, int indent, BufferedWriter writer) throws Exception {
+        if (node instanceof AbstractNode) {
+            ((AbstractNode<?>) node).writeValue(options, indent, writer);
+        } else {
+            node.writeValue(indent, writer);
+        }
+    }
+
+    /**
+     * 写出子结点注释, 子结点不是本库的结点时调用其公开方法.
+     */
+    static void writeComment(Node node, @NotNull Options options, int indent, BufferedWriter writer) throws IOException {
+        if (node instanceof AbstractNode) {
+            ((AbstractNode<?>) node).writeComment(options, indent, writer);
+        } else {
+            node.writeComment(indent, writer);
         }
-        return text
-                .replace("\\b", "\b")
-                .replace("\\n", "\n")
-                .replace("\\r", "\r")
-                .replace("\\t", "\t")
-                .replace("\\\"", "\"")
-                .replace("\\\\", "\\");
     }
 
     @Override
     public void writeIndent(int indent, BufferedWriter writer) throws IOException {
-        indent *= options.getIndent();
-        while (indent-- > 0) {
-            writer.write(' ');
+        writeIndent(options(), indent, writer);
+    }
+
+    static void writeIndent(@NotNull Options options, int indent, BufferedWriter writer) throws IOException {
+        if (indent > 0) {
+            char[] chars = options.indentChars(indent);
+            writer.write(chars, 0, chars.length);
         }
     }
 
@@ -0,0 +1,132 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 文件结点的后台防抖保存.<br>
+ * 静默期内的多次保存请求合并为一次写入, 只写入最后一次请求时的快照.<br>
+ * 所有文件共用一个守护线程, 进程退出时写入全部未完成的保存.
+ *
+ * @author Himmelt
+ */
+final class AsyncSaver {
+
+    /**
+     * 持续有保存请求时, 最迟在首次请求后 静默期 * MAX_DELAY_FACTOR 内写入.
+     */
+    private static final int MAX_DELAY_FACTOR = 10;
+    private static final ScheduledExecutorService EXECUTOR;
+    private static final Set<AsyncSaver> PENDING = ConcurrentHashMap.newKeySet();
+
+    static {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "Hocon-Saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        EXECUTOR = executor;
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncSaver::flushAll, "Hocon-Saver-Shutdown"));
+    }
+
+    private final FileNode node;
+    private final Object writeLock = new Object();
+    private FileNode latest;
+    private CompletableFuture<Void> result;
+    private ScheduledFuture<?> task;
+    private long deadline;
+    /**
+     * 是否正在写入已取出的请求.
+     */
+    private boolean writing;
+
+    AsyncSaver(@NotNull FileNode node) {
+        this.node = node;
+    }
+
+    /**
+     * 提交一次保存请求.
+     *
+     * @param copy  调用线程上创建的结点快照
+     * @param delay 静默期, 毫秒
+     * @return 合并后那次写入的结果
+     */
+    synchronized CompletableFuture<Void> submit(@NotNull FileNode copy, long delay) {
+        long now = System.currentTimeMillis();
+        latest = copy;
+        if (result == null) {
+            result = new CompletableFuture<>();
+            deadline = now + delay * MAX_DELAY_FACTOR;
+            PENDING.add(this);
+        }
+        if (task != null) {
+            task.cancel(false);
+        }
+        task = EXECUTOR.schedule(this::flush, Math.max(0, Math.min(delay, deadline - now)), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * 立即写入未完成的保存请求, 没有请求时无操作.
+     */
+    void flush() {
+        FileNode copy;
+        CompletableFuture<Void> future;
+        synchronized (writeLock) {
+            synchronized (this) {
+                copy = latest;
+                future = result;
+                latest = null;
+                result = null;
+                if (task != null) {
+                    task.cancel(false);
+                    task = null;
+                }
+                PENDING.remove(this);
+                if (copy == null) {
+                    return;
+                }
+                writing = true;
+            }
+            try {
+                copy.save(true);
+                node.stamp();
+                done();
+                future.complete(null);
+            } catch (Throwable e) {
+                // 写入失败, 让之后的同步保存重新写入
+                node.markDirty();
+                done();
+                if (node.options().isDebug()) {
+                    e.printStackTrace();
+                }
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private synchronized void done() {
+        writing = false;
+    }
+
+    /**
+     * 是否有已提交但尚未写入完成的保存请求.
+     *
+     * @return 是否有未完成的保存
+     */
+    synchronized boolean pending() {
+        return result != null || writing;
+    }
+
+    /**
+     * 立即写入全部未完成的保存请求.
+     */
+    static void flushAll() {
+        for (AsyncSaver saver : PENDING) {
+            saver.flush();
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 映射结点的子结点存储, 保持插入顺序.<br>
+ * 不超过 {@link #THRESHOLD} 个键时, 键值交替存放在一个数组里, 线性查找;<br>
+ * 超过后转为父类 {@link LinkedHashMap} 的哈希表存储, 之后不再转回.<br>
+ * 大部分映射结点只有几个键, 这样不需要哈希表和每个键值对的条目对象.<br>
+ * 继承 {@link LinkedHashMap} 只为保持映射结点 value 字段的类型不变, 父类的哈希表在转换前不会分配.<br>
+ * 视图不缓存, 每次调用时创建, 不为每个映射多占字段.
+ *
+ * @author Himmelt
+ */
+final class CompactMap extends LinkedHashMap<String, Node> {
+
+    private static final long serialVersionUID = -3378269461617893528L;
+    /**
+     * 数组存储的最大键数.
+     */
+    static final int THRESHOLD = 8;
+
+    /**
+     * 键值交替存放, [key0, value0, key1, value1, ...].
+     */
+    private transient Object[] table;
+    private transient int count;
+    /**
+     * 是否已转为哈希表存储.
+     */
+    private transient boolean large;
+
+    private int indexOf(Object key) {
+        if (key != null) {
+            Object[] table = this.table;
+            for (int i = 0, end = count << 1; i < end; i += 2) {
+                Object current = table[i];
+                if (current == key || key.equals(current)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return large ? super.size() : count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return large ? super.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (large) {
+            return super.containsValue(value);
+        }
+        for (int i = 1, end = count << 1; i < end; i += 2) {
+            if (Objects.equals(table[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Node get(Object key) {
+        if (large) {
+            return super.get(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (Node) table[index + 1] : null;
+    }
+
+    @Override
+    public Node getOrDefault(Object key, Node def) {
+        if (large) {
+            return super.getOrDefault(key, def);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (Node) table[index + 1] : def;
+    }
+
+    @Override
+    public Node put(@NotNull String key, Node value) {
+        if (large) {
+            return super.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            Node old = (Node) table[index + 1];
+            table[index + 1] = value;
+            return old;
+        }
+        if (count == THRESHOLD) {
+            for (int i = 0, end = count << 1; i < end; i += 2) {
+                super.put((String) table[i], (Node) table[i + 1]);
+            }
+            super.put(key, value);
+            table = null;
+            count = 0;
+            large = true;
+            return null;
+        }
+        if (table == null) {
+            table = new Object[4];
+        } else if (table.length == count << 1) {
+            table = Arrays.copyOf(table, Math.min(table.length << 1, THRESHOLD << 1));
+        }
+        table[count << 1] = key;
+        table[(count << 1) + 1] = value;
+        count++;
+        return null;
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends String, ? extends Node> map) {
+        if (large) {
+            super.putAll(map);
+        } else {
+            map.forEach(this::put);
+        }
+    }
+
+    @Override
+    public Node putIfAbsent(String key, Node value) {
+        if (large) {
+            return super.putIfAbsent(key, value);
+        }
+        Node old = get(key);
+        return old == null ? put(key, value) : old;
+    }
+
+    @Override
+    public Node remove(Object key) {
+        if (large) {
+            return super.remove(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? removeAt(index) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (large) {
+            return super.remove(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0 && Objects.equals(table[index + 1], value)) {
+            removeAt(index);
+            return true;
+        }
+        return false;
+    }
+
+    private Node removeAt(int index) {
+        Node old = (Node) table[index + 1];
+        int end = count << 1;
+        System.arraycopy(table, index + 2, table, index, end - index - 2);
+        table[end - 2] = null;
+        table[end - 1] = null;
+        count--;
+        return old;
+    }
+
+    @Override
+    public boolean replace(String key, Node old, Node value) {
+        if (large) {
+            return super.replace(key, old, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0 && Objects.equals(table[index + 1], old)) {
+            table[index + 1] = value;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Node replace(String key, Node value) {
+        if (large) {
+            return super.replace(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            Node old = (Node) table[index + 1];
+            table[index + 1] = value;
+            return old;
+        }
+        return null;
+    }
+
+    @Override
+    public Node computeIfAbsent(String key, @NotNull Function<? super String, ? extends Node> function) {
+        if (large) {
+            return super.computeIfAbsent(key, function);
+        }
+        Node old = get(key);
+        if (old == null) {
+            Node value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        }
+        return old;
+    }
+
+    @Override
+    public Node computeIfPresent(String key, @NotNull BiFunction<? super String, ? super Node, ? extends Node> function) {
+        if (large) {
+            return super.computeIfPresent(key, function);
+        }
+        Node old = get(key);
+        return old == null ? null : update(key, function.apply(key, old));
+    }
+
+    @Override
+    public Node compute(String key, @NotNull BiFunction<? super String, ? super Node, ? extends Node> function) {
+        if (large) {
+            return super.compute(key, function);
+        }
+        return update(key, function.apply(key, get(key)));
+    }
+
+    @Override
+    public Node merge(String key, @NotNull Node value, @NotNull BiFunction<? super Node, ? super Node, ? extends Node> function) {
+        if (large) {
+            return super.merge(key, value, function);
+        }
+        Node old = get(key);
+        return update(key, old == null ? value : function.apply(old, value));
+    }
+
+    /**
+     * 数组存储时按计算结果设置或移除键.
+     */
+    private Node update(String key, Node value) {
+        if (value == null) {
+            remove(key);
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        if (large) {
+            super.clear();
+        } else {
+            table = null;
+            count = 0;
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Node> action) {
+        if (large) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0, end = count << 1; i < end; i += 2) {
+            action.accept((String) table[i], (Node) table[i + 1]);
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Node, ? extends Node> function) {
+        if (large) {
+            super.replaceAll(function);
+            return;
+        }
+        for (int i = 0, end = count << 1; i < end; i += 2) {
+            table[i + 1] = function.apply((String) table[i], (Node) table[i + 1]);
+        }
+    }
+
+    @Override
+    public @NotNull Set<Entry<String, Node>> entrySet() {
+        return new AbstractSet<Entry<String, Node>>() {
+            @Override
+            public @NotNull Iterator<Entry<String, Node>> iterator() {
+                return large ? CompactMap.super.entrySet().iterator() : new SmallIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public @NotNull Iterator<String> iterator() {
+                Iterator<Entry<String, Node>> it = entrySet().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return it.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object key) {
+                if (containsKey(key)) {
+                    CompactMap.this.remove(key);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Collection<Node> values() {
+        return new AbstractCollection<Node>() {
+            @Override
+            public @NotNull Iterator<Node> iterator() {
+                Iterator<Entry<String, Node>> it = entrySet().iterator();
+                return new Iterator<Node>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Node next() {
+                        return it.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * 复制为普通的 {@link LinkedHashMap}.
+     */
+    @Override
+    public Object clone() {
+        return new LinkedHashMap<>(this);
+    }
+
+    /**
+     * 数组存储的内容不在父类的哈希表里, 序列化为普通的 {@link LinkedHashMap}.
+     */
+    private Object writeReplace() {
+        return new LinkedHashMap<>(this);
+    }
+
+    /**
+     * 数组存储时的迭代器.
+     */
+    private final class SmallIterator implements Iterator<Entry<String, Node>> {
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return !large && next < count << 1;
+        }
+
+        @Override
+        public Entry<String, Node> next() {
+            if (large) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= count << 1) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            return new SmallEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0 || large) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    /**
+     * 数组存储时的键值对, 可以修改值.
+     */
+    private final class SmallEntry implements Entry<String, Node> {
+        private final String key;
+        private final int index;
+
+        private SmallEntry(int index) {
+            this.key = (String) table[index];
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Node getValue() {
+            return !large && index < count << 1 && table[index] == key ? (Node) table[index + 1] : get(key);
+        }
+
+        @Override
+        public Node setValue(Node value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Entry && key.equals(((Entry<?, ?>) obj).getKey()) && Objects.equals(getValue(), ((Entry<?, ?>) obj).getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
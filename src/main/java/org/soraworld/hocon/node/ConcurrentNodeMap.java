@@ -0,0 +1,209 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 线程安全的映射结点.<br>
+ * 内部持有一个冻结的 {@link NodeMap} 快照, 读操作直接读取当前快照, 无锁且不会看到修改了一半的内容.<br>
+ * 写操作串行执行: 浅复制当前快照, 修改(只复制修改路径上的映射, 其余子结点共享), 冻结后以一次 volatile 写发布.<br>
+ * 适合多个工作线程读取, 少量管理线程修改的场景. 保持插入顺序.
+ *
+ * @author Himmelt
+ */
+public final class ConcurrentNodeMap {
+
+    private final Options options;
+    private boolean indexed;
+    private volatile NodeMap current;
+
+    /**
+     * 实例化一个空的线程安全映射.
+     *
+     * @param options 配置选项
+     */
+    public ConcurrentNodeMap(@NotNull Options options) {
+        this.options = options;
+        this.current = new NodeMap(options).freeze();
+    }
+
+    /**
+     * 以映射结点的副本实例化线程安全映射.
+     *
+     * @param origin 源映射, 已冻结时直接共享
+     */
+    public ConcurrentNodeMap(@NotNull NodeMap origin) {
+        this.options = origin.options();
+        this.current = origin.copy().freeze();
+    }
+
+    /**
+     * 当前快照.<br>
+     * 快照已冻结, 可以在任意线程上读取和遍历, 之后的修改不影响已获取的快照.
+     *
+     * @return 冻结的映射
+     */
+    public @NotNull NodeMap snapshot() {
+        return current;
+    }
+
+    public Node get(String paths) {
+        return current.get(paths);
+    }
+
+    public Node get(@NotNull Paths paths) {
+        return current.get(paths);
+    }
+
+    public Node get(@NotNull NodePath path) {
+        return current.get(path);
+    }
+
+    public NodeBase getBase(String paths) {
+        return current.getBase(paths);
+    }
+
+    public NodeList getList(String paths) {
+        return current.getList(paths);
+    }
+
+    public NodeMap getMap(String paths) {
+        return current.getMap(paths);
+    }
+
+    public Set<String> keys() {
+        return current.keys();
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public boolean containsKey(String key) {
+        return current.containsKey(key);
+    }
+
+    public HashMap<String, String> asStringMap() {
+        return current.asStringMap();
+    }
+
+    /**
+     * 用当前快照修改对象 {@link Setting} 修饰的字段.
+     *
+     * @param target 修改对象
+     * @see NodeMap#modify(Object)
+     */
+    public void modify(@NotNull Object target) {
+        current.modify(target);
+    }
+
+    public boolean put(@NotNull String paths, @NotNull Object obj) {
+        return update(map -> map.put(paths, obj));
+    }
+
+    public boolean put(@NotNull NodePath path, @NotNull Object obj, String comment) {
+        return update(map -> map.put(path, obj, comment));
+    }
+
+    public boolean set(@NotNull String paths, @NotNull Object obj) {
+        return update(map -> map.set(paths, obj));
+    }
+
+    public boolean set(@NotNull NodePath path, @NotNull Object obj, String comment) {
+        return update(map -> map.set(path, obj, comment));
+    }
+
+    public Node remove(@NotNull String paths) {
+        return update(map -> map.remove(paths));
+    }
+
+    public Node remove(@NotNull NodePath path) {
+        return update(map -> map.remove(path));
+    }
+
+    public void clear() {
+        update(map -> {
+            map.clear();
+            return null;
+        });
+    }
+
+    /**
+     * 提取对象 {@link Setting} 修饰的字段的值, 作为一次修改发布.
+     *
+     * @param source 源对象
+     * @see NodeMap#extract(Object)
+     */
+    public void extract(@NotNull Object source) {
+        update(map -> {
+            map.extract(source);
+            return null;
+        });
+    }
+
+    /**
+     * 在当前快照的可修改副本上执行一组修改, 全部完成后一次发布.<br>
+     * 修改抛出异常时不发布, 当前快照保持不变.
+     *
+     * @param action 修改操作
+     */
+    public void edit(@NotNull Consumer<NodeMap> action) {
+        update(map -> {
+            action.accept(map);
+            return null;
+        });
+    }
+
+    /**
+     * 在当前快照的可修改副本上执行修改并发布.<br>
+     * 副本的子结点仍与快照共享且已冻结, 需要通过副本按路径修改, 如 {@code map.set("a.b", 1)}.
+     *
+     * @param action 修改操作
+     * @param <R>    返回类型
+     * @return 修改操作的返回值
+     */
+    public synchronized <R> R update(@NotNull Function<NodeMap, R> action) {
+        NodeMap work = new NodeMap(current);
+        R result = action.apply(work);
+        work.setIndexed(indexed);
+        current = work.freeze();
+        return result;
+    }
+
+    /**
+     * 是否为快照启用扁平路径索引.
+     *
+     * @return 是否启用
+     */
+    public synchronized boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * 设置是否为快照启用扁平路径索引, 每个快照在首次查找时建立索引.
+     *
+     * @param indexed 是否启用
+     * @see NodeMap#setIndexed(boolean)
+     */
+    public synchronized void setIndexed(boolean indexed) {
+        if (this.indexed != indexed) {
+            this.indexed = indexed;
+            NodeMap work = new NodeMap(current);
+            work.setIndexed(indexed);
+            current = work.freeze();
+        }
+    }
+
+    /**
+     * 配置选项.
+     *
+     * @return 配置选项
+     */
+    public @NotNull Options options() {
+        return options;
+    }
+}
@@ -0,0 +1,121 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.function.Consumer;
+
+/**
+ * 配置文件的快照持有者.<br>
+ * 持有一个冻结的 {@link FileNode} 快照, 读取线程通过 {@link #get()} 无锁获取, 总是看到完整一致的结点树.<br>
+ * 重载时在旁路新建结点树, 解析成功并冻结后以一次 volatile 写发布; 解析失败时当前快照保持不变.<br>
+ * 修改同样作用在当前快照的副本上, 完成后发布. 重载 修改 保存 之间串行执行.
+ *
+ * @author Himmelt
+ */
+public final class ConfigHolder {
+
+    private final File file;
+    private final Options options;
+    private final boolean keepComments;
+    private volatile FileNode current;
+    /**
+     * 自上次加载或保存以来是否有修改.
+     */
+    private boolean unsaved;
+
+    /**
+     * 实例化快照持有者, 初始快照为空.
+     *
+     * @param file         文件
+     * @param options      配置选项
+     * @param keepComments 加载时是否保留注释
+     */
+    public ConfigHolder(@NotNull File file, @NotNull Options options, boolean keepComments) {
+        this.file = file;
+        this.options = options;
+        this.keepComments = keepComments;
+        this.current = new FileNode(file, options).freeze();
+    }
+
+    /**
+     * 当前快照.<br>
+     * 快照已冻结, 可以在任意线程上读取和遍历, 之后的重载和修改不影响已获取的快照.
+     *
+     * @return 冻结的文件结点
+     */
+    public @NotNull FileNode get() {
+        return current;
+    }
+
+    /**
+     * 从文件重新加载并发布新快照.
+     *
+     * @throws Exception 加载异常, 此时当前快照保持不变
+     */
+    public synchronized void reload() throws Exception {
+        FileNode node = new FileNode(file, options);
+        node.load(false, keepComments);
+        current = node.freeze();
+        unsaved = false;
+    }
+
+    /**
+     * 文件在最近一次加载或保存之后被外部修改时重新加载.
+     *
+     * @return 是否重新加载
+     * @throws Exception 加载异常, 此时当前快照保持不变
+     */
+    public synchronized boolean reloadIfChanged() throws Exception {
+        if (file.isFile() && current.changedOnDisk()) {
+            reload();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 在当前快照的可修改副本上执行修改, 完成后发布.<br>
+     * 副本的子结点仍与快照共享且已冻结, 需要通过副本按路径修改, 如 {@code node.set("a.b", 1)}.<br>
+     * 修改抛出异常时不发布.
+     *
+     * @param action 修改操作
+     */
+    public synchronized void update(@NotNull Consumer<FileNode> action) {
+        FileNode work = new FileNode(current);
+        action.accept(work);
+        current = work.freeze();
+        unsaved = true;
+    }
+
+    /**
+     * 保存当前快照到文件.<br>
+     * 自上次加载或保存以来没有修改且文件存在时, 直接返回.
+     *
+     * @throws Exception 保存异常
+     */
+    public synchronized void save() throws Exception {
+        if (unsaved || !file.exists()) {
+            current.save(true);
+            unsaved = false;
+        }
+    }
+
+    /**
+     * 文件.
+     *
+     * @return 文件
+     */
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    /**
+     * 配置选项.
+     *
+     * @return 配置选项
+     */
+    public @NotNull Options options() {
+        return options;
+    }
+}
@@ -0,0 +1,209 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.soraworld.hocon.exception.HoconException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 目录级配置仓库.<br>
+ * 在有界线程池上并发加载目录(含子目录)下全部 {@code *.conf} 文件,<br>
+ * 按相对路径索引, 路径分隔符统一为 '/', 如 {@code module/main.conf}.<br>
+ * 全部文件共用一个配置选项, 加载期间不应再修改该选项.
+ *
+ * @author Himmelt
+ */
+public final class ConfigRepository {
+
+    private static final String SUFFIX = ".conf";
+
+    private final File directory;
+    private final Options options;
+    private final int parallelism;
+    private final Map<String, FileNode> nodes = new ConcurrentSkipListMap<>();
+
+    /**
+     * 实例化配置仓库, 并发数为处理器个数.
+     *
+     * @param directory 配置目录
+     * @param options   配置选项
+     */
+    public ConfigRepository(@NotNull File directory, @NotNull Options options) {
+        this(directory, options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 实例化配置仓库.
+     *
+     * @param directory   配置目录
+     * @param options     配置选项
+     * @param parallelism 最大并发数
+     */
+    public ConfigRepository(@NotNull File directory, @NotNull Options options, int parallelism) {
+        this.directory = directory;
+        this.options = options;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 并发加载目录下全部配置文件, 替换当前索引.<br>
+     * 部分文件加载失败时, 其余文件照常加载和索引, 之后抛出包含全部失败原因的异常.
+     *
+     * @param keepComments 是否保留注释
+     * @return 相对路径 -> 文件结点 的不可变索引, 是本次加载结果的副本, 不随之后的加载变化
+     * @throws HoconException 遍历目录异常或任一文件加载异常
+     */
+    public Map<String, FileNode> load(boolean keepComments) throws HoconException {
+        Path root = directory.toPath();
+        List<FileNode> found = new ArrayList<>();
+        Map<String, FileNode> index = new HashMap<>();
+        if (directory.isDirectory()) {
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX) && Files.isRegularFile(path)).forEach(path -> {
+                    FileNode node = new FileNode(path.toFile(), options);
+                    found.add(node);
+                    index.put(root.relativize(path).toString().replace(File.separatorChar, '/'), node);
+                });
+            } catch (IOException | UncheckedIOException e) {
+                throw new HoconException(e);
+            }
+        }
+        Set<FileNode> failed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        try {
+            runAll(found, node -> {
+                try {
+                    node.load(false, keepComments);
+                } catch (Exception e) {
+                    failed.add(node);
+                    throw e;
+                }
+            }, "load");
+        } finally {
+            nodes.clear();
+            index.forEach((path, node) -> {
+                if (!failed.contains(node)) {
+                    nodes.put(path, node);
+                }
+            });
+        }
+        return Collections.unmodifiableMap(new TreeMap<>(nodes));
+    }
+
+    /**
+     * 并发保存全部已修改的配置文件.
+     *
+     * @throws HoconException 任一文件保存异常, 包含全部失败原因
+     */
+    public void saveAll() throws HoconException {
+        saveAll(false);
+    }
+
+    /**
+     * 并发保存全部配置文件.
+     *
+     * @param force 是否强制保存未修改的配置
+     * @throws HoconException 任一文件保存异常, 包含全部失败原因
+     */
+    public void saveAll(boolean force) throws HoconException {
+        runAll(new ArrayList<>(nodes.values()), node -> node.save(force), "save");
+    }
+
+    /**
+     * 按相对路径获取文件结点.
+     *
+     * @param path 相对路径, 以 '/' 分隔
+     * @return 文件结点, 不存在时返回 null
+     */
+    public @Nullable FileNode get(@NotNull String path) {
+        return nodes.get(path);
+    }
+
+    /**
+     * 当前的全部文件结点.
+     *
+     * @return 相对路径 -> 文件结点 的只读视图, 按路径排序; 视图随之后的 {@link #load(boolean)} 变化
+     */
+    public Map<String, FileNode> nodes() {
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    /**
+     * 配置目录.
+     *
+     * @return 目录
+     */
+    public @NotNull File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 配置选项.
+     *
+     * @return 配置选项
+     */
+    public @NotNull Options options() {
+        return options;
+    }
+
+    /**
+     * 在有界线程池上对每个结点执行任务, 等待全部完成.
+     */
+    private void runAll(List<FileNode> targets, Task task, String action) throws HoconException {
+        if (targets.isEmpty()) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, targets.size()), runnable -> {
+            Thread thread = new Thread(runnable, "Hocon-Repository-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(targets.size());
+            for (FileNode node : targets) {
+                futures.add(executor.submit(() -> {
+                    task.run(node);
+                    return null;
+                }));
+            }
+            HoconException error = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = new HoconException("Failed to " + action + " config files in " + directory);
+                    }
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    HoconException failure = new HoconException(targets.get(i).getFile() + ": " + cause.getMessage());
+                    failure.initCause(cause);
+                    error.addSuppressed(failure);
+                    if (options.isDebug()) {
+                        cause.printStackTrace();
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HoconException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Task {
+        void run(FileNode node) throws Exception;
+    }
+}
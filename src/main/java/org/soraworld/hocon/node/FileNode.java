@@ -1,14 +1,22 @@
 package org.soraworld.hocon.node;
 
 import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.HoconException;
+import org.soraworld.hocon.util.Lexer;
+import org.soraworld.hocon.util.MappedReader;
 
 import java.io.*;
-import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 文件结点类.
@@ -19,18 +27,13 @@ public class FileNode extends NodeMap {
 
     private final @NotNull File file;
     protected List<String> heads;
+    private AsyncSaver saver;
+    /**
+     * 最近一次加载或保存后文件的修改时间和大小, 用于识别外部修改.
+     */
+    private volatile long modified = -1, length = -1;
 
-    private static final Field FD_VALUE;
-
-    static {
-        Field field = null;
-        try {
-            field = AbstractNode.class.getDeclaredField("value");
-            field.setAccessible(true);
-        } catch (NoSuchFieldException ignored) {
-        }
-        FD_VALUE = field;
-    }
+    private static final int WRITE_BUFFER = 1 << 16;
 
     /**
      * 实例化一个新的文件结点.
@@ -41,6 +44,7 @@ public class FileNode extends NodeMap {
     public FileNode(@NotNull File file) {
         super(Options.defaults());
         this.file = file;
+        this.dirty = true;
     }
 
     /**
@@ -52,29 +56,200 @@ public class FileNode extends NodeMap {
     public FileNode(@NotNull File file, @NotNull Options options) {
         super(options);
         this.file = file;
+        this.dirty = true;
+    }
+
+    /**
+     * 复制一个文件结点.
+     *
+     * @param origin 源结点
+     */
+    public FileNode(@NotNull FileNode origin) {
+        super(origin);
+        this.file = origin.file;
+        this.heads = origin.heads == null ? null : new ArrayList<>(origin.heads);
+        this.modified = origin.modified;
+        this.length = origin.length;
+        this.dirty = true;
     }
 
     /**
-     * 保存配置到文件.
+     * 获取文件.
+     *
+     * @return 文件
+     */
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    /**
+     * 保存配置到文件.<br>
+     * 自上次加载或保存以来没有修改且文件存在时, 直接返回.
      *
      * @throws Exception 保存异常
+     * @see #save(boolean)
      */
     public void save() throws Exception {
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        save(false);
+    }
+
+    /**
+     * 保存配置到文件.<br>
+     * 如果开启了 {@link Options#isAtomicSave()}, 则通过临时文件原子替换.
+     *
+     * @param force 是否强制保存, 为 false 时跳过未修改的配置
+     * @throws Exception 保存异常
+     */
+    public void save(boolean force) throws Exception {
+        // 先写入未完成的异步保存, 避免其稍后覆盖本次写入
+        flush();
+        if (!force && !dirty && file.exists()) {
+            return;
+        }
+        // 打开文件前解析全部延迟的映射块, 解析失败时不写入, 不会截断文件
+        materializeAll();
+        if (options().isAtomicSave()) {
+            saveAtomic();
+        } else {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                writeTo(writer);
+            }
+        }
+        stamp();
+        markClean();
+    }
+
+    /**
+     * 自上次加载或保存以来是否被修改.<br>
+     * 异步保存提交后, 直到后台写入成功完成之前仍视为已修改; 写入失败时保持修改标记.
+     *
+     * @return 是否被修改
+     */
+    @Override
+    public boolean isDirty() {
+        if (dirty) {
+            return true;
+        }
+        AsyncSaver saver;
+        synchronized (this) {
+            saver = this.saver;
+        }
+        return saver != null && saver.pending();
+    }
+
+    /**
+     * 异步保存配置到文件.<br>
+     * 在调用线程上复制当前结点树, 在后台线程上写入.<br>
+     * 提交时清除各结点的修改标记, 以便记录之后的修改; 但在写入完成前 {@link #isDirty()} 仍返回 true,<br>
+     * 写入失败时重新标记修改, 之后的保存会再次写入.<br>
+     * 静默期 {@link Options#getSaveDelay()} 内的多次调用合并为一次写入, 只写入最后一次调用时的内容.<br>
+     * 自上次加载或保存以来没有修改且文件存在时, 直接返回已完成的结果.<br>
+     * 进程退出时会写入全部未完成的异步保存.
+     *
+     * @return 写入结果
+     */
+    public CompletableFuture<Void> saveAsync() {
+        if (!isDirty() && file.exists()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            materializeAll();
+        } catch (HoconException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        FileNode copy = new FileNode(this);
+        markClean();
+        AsyncSaver saver;
+        synchronized (this) {
+            if (this.saver == null) {
+                this.saver = new AsyncSaver(this);
+            }
+            saver = this.saver;
+        }
+        return saver.submit(copy, options().getSaveDelay());
+    }
+
+    /**
+     * 在调用线程上立即写入未完成的异步保存.
+     */
+    public void flush() {
+        AsyncSaver saver;
+        synchronized (this) {
+            saver = this.saver;
+        }
+        if (saver != null) {
+            saver.flush();
+        }
+    }
+
+    /**
+     * 在调用线程上立即写入全部文件结点未完成的异步保存.
+     */
+    public static void flushAll() {
+        AsyncSaver.flushAll();
+    }
 
+    /**
+     * 写入同目录下的临时文件, 按同步策略写盘后原子替换目标文件.
+     *
+     * @throws Exception 保存异常
+     */
+    private void saveAtomic() throws Exception {
+        Path target = file.toPath().toAbsolutePath();
+        Path directory = target.getParent();
+        // 每次保存使用唯一的临时文件, 同步保存和后台保存同时进行时互不覆盖
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        byte sync = options().getSyncMode();
+        try {
+            // 临时文件只有所有者可读写, 替换前沿用目标文件的权限
+            if (Files.exists(target)) {
+                try {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException ignored) {
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER), WRITE_BUFFER)) {
+                writeTo(writer);
+                if (sync != Options.SYNC_NONE) {
+                    channel.force(sync == Options.SYNC_ALL);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (sync == Options.SYNC_ALL) {
+                // 部分平台不支持打开目录, 忽略
+                try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                    channel.force(true);
+                } catch (IOException e) {
+                    if (options().isDebug()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeTo(BufferedWriter writer) throws Exception {
         if (heads != null && !heads.isEmpty()) {
             for (String head : heads) {
-                writer.write("#! " + head);
+                writer.write("#! ");
+                writer.write(head);
                 writer.newLine();
             }
             if (notEmpty()) {
                 writer.newLine();
             }
         }
-
         writeValue(0, writer);
         writer.flush();
-        writer.close();
     }
 
     public void load() throws Exception {
@@ -86,37 +261,288 @@ public class FileNode extends NodeMap {
     }
 
     /**
-     * 从文件加载配置.
+     * 从文件加载配置.<br>
+     * 失败还原时先解析到旁路结点, 成功后才替换当前内容, 但替换仍是在本结点上原地进行的,<br>
+     * 其他线程此时读取或遍历本结点是不安全的. 需要并发读取时使用 {@link ConfigHolder}.
      *
      * @param backup       是否在失败时还原
      * @param keepComments 是否保留注释
      * @throws Exception 加载异常
      */
     public void load(boolean backup, boolean keepComments) throws Exception {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
-        if (backup && FD_VALUE != null) {
-            Object value = this.value;
-            try {
-                FD_VALUE.set(this, new LinkedHashMap<>());
-                readValue(reader, keepComments);
-            } catch (IllegalAccessException ignored) {
-                System.out.println("IllegalAccessException backup will not work !!!");
-                readValue(reader, keepComments);
-            } catch (Exception e) {
+        tryLoad(backup, keepComments);
+    }
+
+    /**
+     * 从文件加载配置, 并报告是否加载成功.
+     *
+     * @param backup       是否在失败时还原
+     * @param keepComments 是否保留注释
+     * @return 是否加载成功, 解析失败并已还原时返回 false
+     * @throws Exception 加载异常
+     * @see #load(boolean, boolean)
+     */
+    boolean tryLoad(boolean backup, boolean keepComments) throws Exception {
+        checkMutable();
+        Snapshot snapshot = null;
+        if (options().isSnapshotCache()) {
+            snapshot = Snapshot.stamp(file);
+            if (snapshot.read(this, keepComments)) {
+                stamp();
+                markClean();
+                return true;
+            }
+        }
+        try (Reader reader = openReader()) {
+            if (backup) {
+                // 先解析到旁路结点, 成功后整体替换, 失败时当前内容保持不变
+                FileNode fresh = new FileNode(file, options());
                 try {
-                    FD_VALUE.set(this, value);
-                    if (options.isDebug()) {
+                    fresh.read(reader, keepComments);
+                    if (options().isLazyLoad()) {
+                        // 需要还原时不能延迟发现语法错误, 立即解析全部映射块
+                        fresh.parseParallel();
+                    }
+                } catch (Exception e) {
+                    // 内存中的配置与文件不一致, 需要重新保存
+                    markDirty();
+                    if (options().isDebug()) {
                         System.out.println("Fail-Recover success.");
                     }
-                } catch (IllegalAccessException ignored) {
-                    System.out.println("IllegalAccessException recover failed !!!");
-                    throw e;
+                    return false;
+                }
+                moveFrom(fresh);
+                if (keepComments) {
+                    replaceHeads(fresh.heads);
                 }
+            } else {
+                if (keepComments) {
+                    // 头部注释随文件重新读取, 不能在重复加载时累加
+                    replaceHeads(null);
+                }
+                read(reader, keepComments);
+            }
+        }
+        if (snapshot != null) {
+            snapshot.write(this, keepComments, keepComments ? heads : null);
+        }
+        stamp();
+        markClean();
+        return true;
+    }
+
+    /**
+     * 记录文件当前的修改时间和大小.
+     */
+    void stamp() {
+        modified = file.lastModified();
+        length = file.length();
+    }
+
+    /**
+     * 文件是否在最近一次加载或保存之后被外部修改.
+     *
+     * @return 是否被外部修改
+     */
+    boolean changedOnDisk() {
+        return file.lastModified() != modified || file.length() != length;
+    }
+
+    private void read(Reader reader, boolean keepComments) throws Exception {
+        long size = file.length();
+        boolean lazy = options().isLazyLoad();
+        if ((lazy || options().isParallelLoad()) && size < Integer.MAX_VALUE - 8) {
+            // UTF-8 的字符数不会超过字节数
+            char[] source = new char[(int) size + 1];
+            int length = 0, count;
+            while ((count = reader.read(source, length, source.length - length)) >= 0) {
+                length += count;
+                if (length == source.length) {
+                    source = Arrays.copyOf(source, length << 1);
+                }
+            }
+            readValue(new Lexer(source, 0, length), keepComments, source);
+            if (!lazy) {
+                parseParallel();
             }
         } else {
-            readValue(reader, keepComments);
+            readValue(new Lexer(reader), keepComments);
+        }
+    }
+
+    /**
+     * 并行解析全部延迟的顶层映射块.
+     *
+     * @throws HoconException 任一映射块的解析异常
+     */
+    private void parseParallel() throws HoconException {
+        ArrayList<NodeMap> blocks = new ArrayList<>();
+        for (Node node : value.values()) {
+            if (node instanceof NodeMap) {
+                blocks.add((NodeMap) node);
+            }
+        }
+        AtomicReference<HoconException> error = new AtomicReference<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int batch = Math.max(1, blocks.size() / (pool.getParallelism() * 4));
+        pool.invoke(new ParseTask(blocks, 0, blocks.size(), batch, error));
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    /**
+     * 从文件中只读取指定路径的结点, 不构建整棵结点树.<br>
+     * 使用默认配置.
+     *
+     * @param file  文件
+     * @param paths 路径
+     * @return 与路径一一对应的结点, 不存在的路径对应 null
+     * @throws Exception 读取异常
+     * @see #read(File, Options, Paths...)
+     */
+    public static Node[] read(@NotNull File file, @NotNull Paths... paths) throws Exception {
+        return read(file, Options.defaults(), paths);
+    }
+
+    /**
+     * 从文件中只读取指定路径的结点, 不构建整棵结点树.<br>
+     * 顺序扫描文件, 只进入与路径匹配的映射块, 其余内容直接跳过. 返回的结点不含注释.<br>
+     * 与 {@link #load()} 一样, 重复的键以最后一次出现为准, 重复的映射块不合并,<br>
+     * 因此总是扫描到文件末尾.
+     *
+     * @param file    文件
+     * @param options 配置选项
+     * @param paths   路径
+     * @return 与路径一一对应的结点, 不存在的路径对应 null
+     * @throws Exception 读取异常
+     */
+    public static Node[] read(@NotNull File file, @NotNull Options options, @NotNull Paths... paths) throws Exception {
+        Node[] nodes = new Node[paths.length];
+        String[][] segments = new String[paths.length][];
+        int[] candidates = new int[paths.length];
+        int count = 0;
+        for (int i = 0; i < paths.length; i++) {
+            segments[i] = new String[paths[i].size()];
+            for (int j = 0; j < segments[i].length; j++) {
+                segments[i][j] = paths[i].get(j);
+            }
+            if (segments[i].length > 0) {
+                candidates[count++] = i;
+            }
+        }
+        if (count > 0) {
+            FileNode root = new FileNode(file, options);
+            try (Reader reader = root.openReader()) {
+                root.seek(new Lexer(reader), segments, candidates, count, 0, nodes);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * 在当前映射层级查找路径.<br>
+     * 键每次出现都会整体替换之前的结果, 与完整加载时后出现的键覆盖先出现的一致.
+     *
+     * @param lexer      词法分析器
+     * @param segments   全部路径的路径段
+     * @param candidates 前缀与当前层级匹配的路径索引
+     * @param count      候选路径个数
+     * @param depth      当前层级
+     * @param nodes      查找结果
+     * @throws HoconException 解析异常
+     */
+    private void seek(Lexer lexer, String[][] segments, int[] candidates, int count, int depth, Node[] nodes) throws HoconException {
+        int[] matched = new int[count];
+        while (true) {
+            byte token = lexer.nextKey();
+            switch (token) {
+                case Lexer.EOF:
+                case Lexer.END_MAP:
+                case Lexer.END_LIST:
+                    return;
+                case Lexer.NEWLINE:
+                case Lexer.COMMA:
+                case Lexer.HEAD:
+                case Lexer.COMMENT:
+                    continue;
+                case Lexer.TEXT:
+                    break;
+                default:
+                    throw lexer.error("Unexpected token");
+            }
+            int found = 0;
+            boolean exact = false;
+            for (int i = 0; i < count; i++) {
+                String[] path = segments[candidates[i]];
+                if (lexer.textEquals(path[depth])) {
+                    matched[found++] = candidates[i];
+                    exact |= path.length == depth + 1;
+                }
+            }
+            token = lexer.nextKey();
+            if (token == Lexer.ASSIGN) {
+                token = lexer.nextValue(false);
+            } else if (token != Lexer.BEGIN_MAP) {
+                throw lexer.error("Expected '=' or '{' after key");
+            }
+            // 后出现的键替换之前的整个值
+            for (int i = 0; i < found; i++) {
+                nodes[matched[i]] = null;
+            }
+            if (exact) {
+                Node node = readNode(options(), lexer, token, false);
+                if (node == null) {
+                    node = new NodeBase(options(), "");
+                }
+                for (int i = 0; i < found; i++) {
+                    String[] path = segments[matched[i]];
+                    Node target = node;
+                    if (path.length > depth + 1) {
+                        target = node instanceof NodeMap ? ((NodeMap) node).get(NodePath.of(Arrays.copyOfRange(path, depth + 1, path.length))) : null;
+                    }
+                    nodes[matched[i]] = target;
+                }
+            } else if (found > 0 && token == Lexer.BEGIN_MAP) {
+                seek(lexer, segments, matched, found, depth + 1, nodes);
+                continue;
+            } else if (token == Lexer.BEGIN_MAP || token == Lexer.BEGIN_LIST) {
+                lexer.skip(token);
+                continue;
+            }
+            if (token == Lexer.EOF || token == Lexer.END_MAP || token == Lexer.END_LIST) {
+                return;
+            }
+        }
+    }
+
+    private Reader openReader() throws IOException {
+        if (options().isMappedLoad()) {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                return new MappedReader(channel);
+            } catch (IOException | RuntimeException e) {
+                // 映射失败时读取器没有创建, 通道需要在这里关闭
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
         }
-        reader.close();
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public FileNode freeze() {
+        super.freeze();
+        return this;
+    }
+
+    @Override
+    public FileNode copy() {
+        return frozen ? this : new FileNode(this);
     }
 
     /**
@@ -125,6 +551,7 @@ public class FileNode extends NodeMap {
      * @param heads 头部多行注释
      */
     public void setHeads(List<String> heads) {
+        checkMutable();
         if (heads != null && !heads.isEmpty()) {
             this.heads = new ArrayList<>();
             heads.forEach(s -> this.heads.addAll(Arrays.asList(s.split("[\n\r]"))));
@@ -132,6 +559,7 @@ public class FileNode extends NodeMap {
         } else {
             this.heads = null;
         }
+        markDirty();
     }
 
     /**
@@ -141,18 +569,69 @@ public class FileNode extends NodeMap {
      */
     public void addHead(String head) {
         if (head != null && !head.isEmpty()) {
+            checkMutable();
             if (heads == null) {
                 heads = new ArrayList<>();
             }
             heads.addAll(Arrays.asList(head.split("[\n\r]")));
             heads.removeIf(String::isEmpty);
+            markDirty();
         }
     }
 
+    /**
+     * 以从文件读取的头部注释替换当前头部注释, 不标记修改.
+     *
+     * @param heads 头部注释, 可以为 null
+     */
+    void replaceHeads(List<String> heads) {
+        this.heads = heads == null || heads.isEmpty() ? null : new ArrayList<>(heads);
+    }
+
     /**
      * 清空头部注释.
      */
     public void clearHeads() {
-        this.heads = null;
+        if (heads != null) {
+            checkMutable();
+            heads = null;
+            markDirty();
+        }
+    }
+
+    /**
+     * 顶层映射块的并行解析任务, 按区间二分拆分.
+     */
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 4127805329845315874L;
+        private final List<NodeMap> blocks;
+        private final int from;
+        private final int to;
+        private final int batch;
+        private final AtomicReference<HoconException> error;
+
+        private ParseTask(List<NodeMap> blocks, int from, int to, int batch, AtomicReference<HoconException> error) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+            this.error = error;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batch) {
+                for (int i = from; i < to && error.get() == null; i++) {
+                    try {
+                        blocks.get(i).parseDeferred(false);
+                    } catch (HoconException e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(blocks, from, middle, batch, error), new ParseTask(blocks, middle, to, batch, error));
+            }
+        }
     }
 }
@@ -0,0 +1,276 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 文件结点热重载监视器.<br>
+ * 基于 {@link WatchService}, 一个监视线程处理任意多个文件.<br>
+ * 文件变化后等待静默期再重载, 编辑器保存时的连续事件只触发一次重载,<br>
+ * 重载使用 {@link FileNode#load(boolean, boolean)} 或 {@link ConfigHolder#reloadIfChanged()}, 成功后通知监听器.<br>
+ * 由结点自身保存引起的变化会被忽略, 直接监视的 {@link FileNode} 有未保存的修改时跳过重载并输出提示.<br>
+ * 注意: 重载和监听器都在监视线程上执行.<br>
+ * 直接监视的 {@link FileNode} 在监视线程上原地重载, 其他线程同时读取或遍历该结点是不安全的;<br>
+ * 需要在其他线程上读取配置时, 应监视 {@link ConfigHolder}, 读取线程总是得到完整一致的快照.
+ *
+ * @author Himmelt
+ */
+public final class FileWatcher implements Closeable {
+
+    private final long delay;
+    private final WatchService service;
+    private final Thread thread;
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Map<Path, Watched> watched = new ConcurrentHashMap<>();
+    private final List<Consumer<FileNode>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * 实例化监视器, 静默期为 200 毫秒.
+     *
+     * @throws IOException 创建监视服务异常
+     */
+    public FileWatcher() throws IOException {
+        this(200);
+    }
+
+    /**
+     * 实例化监视器.
+     *
+     * @param delay 静默期, 毫秒
+     * @throws IOException 创建监视服务异常
+     */
+    public FileWatcher(long delay) throws IOException {
+        this.delay = Math.max(0, delay);
+        this.service = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "Hocon-Watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 监视文件结点.<br>
+     * 结点在监视线程上原地重载, 只适合仅由监视线程或监听器访问的结点,<br>
+     * 多线程读取时使用 {@link #watch(ConfigHolder)}.
+     *
+     * @param node         文件结点
+     * @param keepComments 重载时是否保留注释
+     * @throws IOException 注册目录异常
+     */
+    public void watch(@NotNull FileNode node, boolean keepComments) throws IOException {
+        watch(pathOf(node.getFile()), new Watched(node, null, keepComments));
+    }
+
+    /**
+     * 监视快照持有者的文件, 变化后重载并发布新快照.<br>
+     * 监听器收到的是新发布的快照.
+     *
+     * @param holder 快照持有者
+     * @throws IOException 注册目录异常
+     */
+    public void watch(@NotNull ConfigHolder holder) throws IOException {
+        watch(pathOf(holder.getFile()), new Watched(null, holder, false));
+    }
+
+    private synchronized void watch(Path path, Watched target) throws IOException {
+        Path directory = path.getParent();
+        if (!keys.containsKey(directory)) {
+            keys.put(directory, directory.register(service, ENTRY_CREATE, ENTRY_MODIFY));
+        }
+        watched.put(path, target);
+    }
+
+    /**
+     * 停止监视文件结点.
+     *
+     * @param node 文件结点
+     */
+    public void unwatch(@NotNull FileNode node) {
+        unwatch(pathOf(node.getFile()), node);
+    }
+
+    /**
+     * 停止监视快照持有者.
+     *
+     * @param holder 快照持有者
+     */
+    public void unwatch(@NotNull ConfigHolder holder) {
+        unwatch(pathOf(holder.getFile()), holder);
+    }
+
+    private synchronized void unwatch(Path path, Object owner) {
+        Watched current = watched.get(path);
+        if (current != null && (current.node == owner || current.holder == owner)) {
+            watched.remove(path);
+            Path directory = path.getParent();
+            if (watched.keySet().stream().noneMatch(other -> directory.equals(other.getParent()))) {
+                WatchKey key = keys.remove(directory);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 添加重载监听器, 每次重载成功后以重载的结点调用.
+     *
+     * @param listener 监听器
+     */
+    public void addListener(@NotNull Consumer<FileNode> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 移除重载监听器.
+     *
+     * @param listener 监听器
+     */
+    public void removeListener(@NotNull Consumer<FileNode> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 停止监视线程.
+     *
+     * @throws IOException 关闭监视服务异常
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        service.close();
+        thread.interrupt();
+    }
+
+    private static Path pathOf(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    private void run() {
+        // 待重载文件 -> 重载时间
+        Map<Path, Long> due = new HashMap<>();
+        try {
+            while (!closed) {
+                WatchKey key;
+                if (due.isEmpty()) {
+                    key = service.take();
+                } else {
+                    long wait = Collections.min(due.values()) - System.currentTimeMillis();
+                    key = wait > 0 ? service.poll(wait, TimeUnit.MILLISECONDS) : service.poll();
+                }
+                if (key != null) {
+                    long time = System.currentTimeMillis() + delay;
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            for (Path path : watched.keySet()) {
+                                if (directory.equals(path.getParent())) {
+                                    due.put(path, time);
+                                }
+                            }
+                        } else {
+                            Path path = directory.resolve((Path) event.context());
+                            if (watched.containsKey(path)) {
+                                due.put(path, time);
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+                long now = System.currentTimeMillis();
+                Iterator<Map.Entry<Path, Long>> it = due.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Path, Long> entry = it.next();
+                    if (entry.getValue() <= now) {
+                        it.remove();
+                        reload(watched.get(entry.getKey()));
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void reload(Watched target) {
+        if (target == null) {
+            return;
+        }
+        FileNode node = target.node;
+        if (target.holder != null) {
+            try {
+                if (!target.holder.reloadIfChanged()) {
+                    return;
+                }
+            } catch (Exception e) {
+                System.out.println("ConfigHolder reload failed: " + e.getMessage());
+                if (target.holder.options().isDebug()) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            node = target.holder.get();
+        } else {
+            if (!node.getFile().isFile() || !node.changedOnDisk()) {
+                return;
+            }
+            if (node.isDirty() && !target.failed) {
+                // 重新加载会丢弃未保存或正在异步保存的修改
+                System.out.println("FileNode " + node.getFile() + " has unsaved changes, skip reloading.");
+                return;
+            }
+            try {
+                // 解析失败还原后结点被标记为已修改, 文件修正后仍需重载
+                target.failed = !node.tryLoad(true, target.keepComments);
+                if (target.failed) {
+                    // 解析失败并已还原, 不通知
+                    return;
+                }
+            } catch (Exception e) {
+                System.out.println("FileNode reload failed: " + e.getMessage());
+                if (node.options().isDebug()) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+        }
+        for (Consumer<FileNode> listener : listeners) {
+            try {
+                listener.accept(node);
+            } catch (Throwable e) {
+                if (node.options().isDebug()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 被监视的文件结点或快照持有者.
+     */
+    private static final class Watched {
+        private final FileNode node;
+        private final ConfigHolder holder;
+        private final boolean keepComments;
+        /**
+         * 上次重载是否解析失败并已还原.
+         */
+        private boolean failed;
+
+        private Watched(FileNode node, ConfigHolder holder, boolean keepComments) {
+            this.node = node;
+            this.holder = holder;
+            this.keepComments = keepComments;
+        }
+    }
+}
@@ -20,7 +20,9 @@ public interface Node {
     boolean notEmpty();
 
     /**
-     * 从数据 reader 读取值到 node.
+     * 从数据 reader 读取值到 node.<br>
+     * 读取时会按块预读, 调用后 reader 的位置不确定, 值之后的内容可能已被读走,<br>
+     * 因此 reader 应只包含这一个值, 调用后不应再从中读取.
      *
      * @param reader reader
      * @throws Exception 读取异常
@@ -30,7 +32,9 @@ public interface Node {
     }
 
     /**
-     * 读取值
+     * 读取值.<br>
+     * 读取时会按块预读, 调用后 reader 的位置不确定, 值之后的内容可能已被读走,<br>
+     * 因此 reader 应只包含这一个值, 调用后不应再从中读取.
      *
      * @param reader       读
      * @param keepComments 是否保持注释
@@ -48,9 +52,12 @@ public interface Node {
     void writeValue(int indent, BufferedWriter writer) throws Exception;
 
     /**
-     * 获取 node 的多行注释.
+     * 获取 node 的多行注释.<br>
+     * 注意: 返回的列表不可修改, 对其调用 {@code add} 等方法会抛出 {@link UnsupportedOperationException};<br>
+     * 旧版本返回的是内部列表, 现在需要通过 {@link #addComment(String)}, {@link #setComment(String)},<br>
+     * {@link #setComments(List)} 修改注释.
      *
-     * @return 多行注释 comments
+     * @return 多行注释 comments, 没有注释时为 null
      */
     List<String> getComments();
 
@@ -18,6 +18,18 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
 
     private static final Field FIELD_VALUE;
     private static final long serialVersionUID = 511187959363727820L;
+    /**
+     * 缓存标记: 不是数字也不是逻辑值.
+     */
+    private static final Object NOT_NUMBER = new Object();
+
+    /**
+     * 首次按数值或逻辑值读取时的解析结果, 之后各种读取都从这一个结果推导, 不会互相覆盖:<br>
+     * {@link Long} 是长整数, 小数形式由它转换; {@link Double} 是小数但不是长整数, 单精度形式由它转换;<br>
+     * {@link Boolean} 是逻辑值但不是数字; {@link #NOT_NUMBER} 都不是.<br>
+     * 只保存不可变对象, 冻结的结点可以在多个线程上同时读取.
+     */
+    private transient volatile Object cache;
 
     static {
         Field field = null;
@@ -31,7 +43,7 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
     }
 
     public NodeBase(@NotNull NodeBase origin) {
-        super(origin.options, origin.value, origin.comments);
+        super(origin.options(), origin.value, origin.comments);
     }
 
     /**
@@ -70,13 +82,19 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
 
     @Override
     public void writeValue(int indent, BufferedWriter writer) throws Exception {
-        writer.write(quotation(value));
+        writeQuotation(value, writer);
     }
 
     @Override
     public void translate(byte cfg) {
         try {
-            FIELD_VALUE.set(this, options.translate(cfg, value));
+            String text = options().translate(cfg, value);
+            if (!value.equals(text)) {
+                checkMutable();
+                FIELD_VALUE.set(this, text);
+                cache = null;
+                markDirty();
+            }
         } catch (IllegalAccessException e) {
             e.printStackTrace();
         }
@@ -95,36 +113,100 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
      * 获取封装对象的整数形式.
      *
      * @return 整数
+     * @throws NumberFormatException 不是整数或超出范围
      */
     public int getInt() {
-        return Integer.parseInt(value);
+        long number = getLong();
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw notNumber();
+        }
+        return (int) number;
+    }
+
+    /**
+     * 获取封装对象的整数形式.
+     *
+     * @param def 不是整数或超出范围时的默认值
+     * @return 整数
+     */
+    public int getInt(int def) {
+        Long number = parseLong();
+        return number != null && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (int) (long) number : def;
     }
 
     /**
      * 获取封装对象的长整数形式.
      *
      * @return 长整数
+     * @throws NumberFormatException 不是长整数
      */
     public long getLong() {
-        return Long.parseLong(value);
+        Long number = parseLong();
+        if (number == null) {
+            throw notNumber();
+        }
+        return number;
+    }
+
+    /**
+     * 获取封装对象的长整数形式.
+     *
+     * @param def 不是长整数时的默认值
+     * @return 长整数
+     */
+    public long getLong(long def) {
+        Long number = parseLong();
+        return number != null ? number : def;
     }
 
     /**
      * 获取封装对象的浮点数形式.
      *
      * @return 浮点数
+     * @throws NumberFormatException 不是数字
      */
     public float getFloat() {
-        return Float.parseFloat(value);
+        Float number = parseFloat();
+        if (number == null) {
+            throw notNumber();
+        }
+        return number;
+    }
+
+    /**
+     * 获取封装对象的浮点数形式.
+     *
+     * @param def 不是数字时的默认值
+     * @return 浮点数
+     */
+    public float getFloat(float def) {
+        Float number = parseFloat();
+        return number != null ? number : def;
     }
 
     /**
      * 获取封装对象的双精度小数形式.
      *
      * @return 双精度小数
+     * @throws NumberFormatException 不是数字
      */
     public double getDouble() {
-        return Double.parseDouble(value);
+        Double number = parseDouble();
+        if (number == null) {
+            throw notNumber();
+        }
+        return number;
+    }
+
+    /**
+     * 获取封装对象的双精度小数形式.
+     *
+     * @param def 不是数字时的默认值
+     * @return 双精度小数
+     */
+    public double getDouble(double def) {
+        Double number = parseDouble();
+        return number != null ? number : def;
     }
 
     /**
@@ -134,11 +216,91 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
      * @return 逻辑值
      */
     public Boolean getBoolean() {
-        return "true".equalsIgnoreCase(value)
-                || "yes".equalsIgnoreCase(value)
-                || "1".equalsIgnoreCase(value)
-                || "t".equalsIgnoreCase(value)
-                || "y".equalsIgnoreCase(value);
+        return parseBoolean() == Boolean.TRUE;
+    }
+
+    /**
+     * 获取封装对象的逻辑值形式.
+     * true yes 1 t y 为真, false no 0 f n 为假.
+     *
+     * @param def 都不是时的默认值
+     * @return 逻辑值
+     */
+    public boolean getBoolean(boolean def) {
+        Boolean result = parseBoolean();
+        return result == null ? def : result;
+    }
+
+    /**
+     * 解析并缓存, 依次尝试逻辑值, 长整数, 小数.
+     */
+    private Object parse() {
+        Object cached = cache;
+        if (cached == null) {
+            try {
+                cached = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                if ("true".equalsIgnoreCase(value)
+                        || "yes".equalsIgnoreCase(value)
+                        || "t".equalsIgnoreCase(value)
+                        || "y".equalsIgnoreCase(value)) {
+                    cached = Boolean.TRUE;
+                } else if ("false".equalsIgnoreCase(value)
+                        || "no".equalsIgnoreCase(value)
+                        || "f".equalsIgnoreCase(value)
+                        || "n".equalsIgnoreCase(value)) {
+                    cached = Boolean.FALSE;
+                } else {
+                    try {
+                        cached = Double.parseDouble(value);
+                    } catch (NumberFormatException ignored) {
+                        cached = NOT_NUMBER;
+                    }
+                }
+            }
+            cache = cached;
+        }
+        return cached;
+    }
+
+    private Boolean parseBoolean() {
+        Object cached = parse();
+        if (cached instanceof Boolean) {
+            return (Boolean) cached;
+        }
+        // 数字中只有 "1" 和 "0" 是逻辑值
+        if (cached instanceof Long && value.length() == 1) {
+            long number = (Long) cached;
+            return number == 1 ? Boolean.TRUE : number == 0 ? Boolean.FALSE : null;
+        }
+        return null;
+    }
+
+    private Long parseLong() {
+        Object cached = parse();
+        return cached instanceof Long ? (Long) cached : null;
+    }
+
+    private Double parseDouble() {
+        Object cached = parse();
+        if (cached instanceof Double) {
+            return (Double) cached;
+        }
+        if (cached instanceof Long) {
+            long number = (Long) cached;
+            // "-0" 作为小数是 -0.0
+            return number == 0 && value.charAt(0) == '-' ? -0.0 : (double) number;
+        }
+        return null;
+    }
+
+    private Float parseFloat() {
+        Double number = parseDouble();
+        return number != null ? (float) (double) number : null;
+    }
+
+    private NumberFormatException notNumber() {
+        return new NumberFormatException("For input string: \"" + value + "\"");
     }
 
     @Override
@@ -176,9 +338,21 @@ public class NodeBase extends AbstractNode<String> implements Node, Serializable
         return value;
     }
 
+    @Override
+    boolean sameAs(Node other) {
+        return other instanceof NodeBase && value.equals(((NodeBase) other).value) && sameComments(other);
+    }
+
+    @Override
+    public NodeBase freeze() {
+        detach();
+        frozen = true;
+        return this;
+    }
+
     @Override
     public NodeBase copy() {
-        return new NodeBase(this);
+        return frozen ? this : new NodeBase(this);
     }
 
     @Override
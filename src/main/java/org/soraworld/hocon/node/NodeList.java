@@ -1,10 +1,13 @@
 package org.soraworld.hocon.node;
 
 import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.HoconException;
+import org.soraworld.hocon.util.Lexer;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -16,9 +19,35 @@ import java.util.List;
  */
 public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
 
+    /**
+     * 基本类型存储的元素类型.
+     */
+    private static final byte PRIMITIVE_LONG = 1, PRIMITIVE_DOUBLE = 2;
+
+    /**
+     * 全部元素都是无注释的规范数值时, 以基本类型数组存储, 不为每个元素创建结点.<br>
+     * 此时 value 为空, 按结点访问或修改时再展开成结点.
+     */
+    private byte primitive;
+    /**
+     * 长整数, 或小数的 {@link Double#doubleToRawLongBits(double)}.
+     */
+    private long[] numbers;
+    private int count;
+
     public NodeList(@NotNull NodeList origin) {
-        super(origin.options, new ArrayList<>(), origin.comments);
-        origin.value.forEach(element -> this.value.add(element.copy()));
+        super(origin.options(), new ArrayList<>(), origin.comments);
+        if (origin.primitive != 0) {
+            this.primitive = origin.primitive;
+            this.numbers = Arrays.copyOf(origin.numbers, origin.count);
+            this.count = origin.count;
+        } else {
+            origin.value.forEach(element -> {
+                Node node = element.copy();
+                attach(node, true);
+                this.value.add(node);
+            });
+        }
     }
 
     /**
@@ -44,11 +73,50 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
         super(options, new ArrayList<>(), comments);
     }
 
+    /**
+     * 实例化一个长整数列表结点, 以基本类型数组存储.
+     *
+     * @param options 配置选项
+     * @param numbers 长整数
+     */
+    public NodeList(@NotNull Options options, @NotNull long[] numbers) {
+        super(options, new ArrayList<>());
+        if (numbers.length > 0) {
+            this.primitive = PRIMITIVE_LONG;
+            this.numbers = numbers.clone();
+            this.count = numbers.length;
+        }
+    }
+
+    /**
+     * 实例化一个小数列表结点, 以基本类型数组存储.
+     *
+     * @param options 配置选项
+     * @param numbers 小数
+     */
+    public NodeList(@NotNull Options options, @NotNull double[] numbers) {
+        super(options, new ArrayList<>());
+        if (numbers.length > 0) {
+            this.primitive = PRIMITIVE_DOUBLE;
+            this.numbers = new long[numbers.length];
+            for (int i = 0; i < numbers.length; i++) {
+                this.numbers[i] = Double.doubleToRawLongBits(numbers[i]);
+            }
+            this.count = numbers.length;
+        }
+    }
+
     /**
      * 清空结点列表.
      */
     public void clear() {
-        value.clear();
+        checkMutable();
+        if (primitive != 0 || !value.isEmpty()) {
+            resetPrimitive();
+            value.forEach(this::release);
+            value.clear();
+            markDirty();
+        }
     }
 
     /**
@@ -57,7 +125,76 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @return size
      */
     public int size() {
-        return value.size();
+        return primitive != 0 ? count : value.size();
+    }
+
+    /**
+     * 是否以基本类型数组存储.
+     *
+     * @return 是否以基本类型数组存储
+     */
+    public boolean isPrimitive() {
+        return primitive != 0;
+    }
+
+    /**
+     * 全部元素的长整数形式.
+     *
+     * @return 长整数数组
+     * @throws NumberFormatException 存在不是长整数的元素, 或不是整数值的小数
+     */
+    public long[] toLongArray() {
+        if (primitive == PRIMITIVE_LONG) {
+            return Arrays.copyOf(numbers, count);
+        }
+        long[] array = new long[size()];
+        if (primitive == PRIMITIVE_DOUBLE) {
+            for (int i = 0; i < count; i++) {
+                double number = Double.longBitsToDouble(numbers[i]);
+                // 2^63 本身已超出长整数范围
+                if (number != Math.rint(number) || number < -0x1p63 || number >= 0x1p63) {
+                    throw new NumberFormatException("Element " + i + " is not a long: " + number);
+                }
+                array[i] = (long) number;
+            }
+            return array;
+        }
+        for (int i = 0; i < array.length; i++) {
+            array[i] = numberAt(i).getLong();
+        }
+        return array;
+    }
+
+    /**
+     * 全部元素的小数形式.
+     *
+     * @return 小数数组
+     * @throws NumberFormatException 存在不是数字的元素
+     */
+    public double[] toDoubleArray() {
+        double[] array = new double[size()];
+        if (primitive == PRIMITIVE_LONG) {
+            for (int i = 0; i < count; i++) {
+                array[i] = numbers[i];
+            }
+        } else if (primitive == PRIMITIVE_DOUBLE) {
+            for (int i = 0; i < count; i++) {
+                array[i] = Double.longBitsToDouble(numbers[i]);
+            }
+        } else {
+            for (int i = 0; i < array.length; i++) {
+                array[i] = numberAt(i).getDouble();
+            }
+        }
+        return array;
+    }
+
+    private NodeBase numberAt(int index) {
+        Node node = value.get(index);
+        if (node instanceof NodeBase) {
+            return (NodeBase) node;
+        }
+        throw new NumberFormatException("Element " + index + " is not a number");
     }
 
     /**
@@ -66,7 +203,20 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @param node 结点
      */
     public void add(@NotNull Node node) {
-        value.add(node.copy());
+        addOwned(node.copy());
+    }
+
+    /**
+     * 添加一个结点到列表中, 不复制.<br>
+     * 结点的所有权转移给列表, 调用者之后不应再持有或修改该结点.
+     *
+     * @param node 结点
+     */
+    public void addOwned(@NotNull Node node) {
+        checkMutable();
+        inflate();
+        value.add(node);
+        attach(node, true);
     }
 
     /**
@@ -77,6 +227,11 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @return 对应结点
      */
     public Node get(int index) {
+        if (primitive != 0 && frozen) {
+            // 冻结的列表可能被多个线程同时读取, 不展开
+            return index >= 0 && index < count ? element(index).freeze() : null;
+        }
+        inflate();
         if (index >= 0 && index < value.size()) {
             return value.get(index);
         }
@@ -91,8 +246,27 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @param node  对应结点
      */
     public void set(int index, @NotNull Node node) {
+        if (index >= 0 && index < size()) {
+            setOwned(index, node.copy());
+        } else {
+            checkMutable();
+        }
+    }
+
+    /**
+     * 设置索引位置的结点, 不复制.<br>
+     * 结点的所有权转移给列表, 调用者之后不应再持有或修改该结点.
+     * 如果索引位置非法，则无效.
+     *
+     * @param index 索引位置
+     * @param node  对应结点
+     */
+    public void setOwned(int index, @NotNull Node node) {
+        checkMutable();
+        inflate();
         if (index >= 0 && index < value.size()) {
-            value.set(index, node.copy());
+            release(value.set(index, node));
+            attach(node, true);
         }
     }
 
@@ -102,8 +276,11 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @param index 索引位置
      */
     public void remove(int index) {
+        checkMutable();
+        inflate();
         if (index >= 0 && index < value.size()) {
-            value.remove(index);
+            release(value.remove(index));
+            markDirty();
         }
     }
 
@@ -113,90 +290,215 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
      * @param node 待移除结点
      */
     public void remove(Node node) {
-        value.remove(node);
+        checkMutable();
+        inflate();
+        if (value.remove(node)) {
+            release(node);
+            markDirty();
+        }
     }
 
     @Override
     public boolean notEmpty() {
-        return !value.isEmpty();
+        return primitive != 0 || !value.isEmpty();
     }
 
     @Override
     public void readValue(BufferedReader reader, boolean keepComments) throws Exception {
+        checkMutable();
+        readValue(new Lexer(reader), keepComments);
+        markDirty();
+    }
+
+    /**
+     * 从词法分析器读取列表内容, 直到列表结束或数据结束.
+     *
+     * @param lexer        词法分析器
+     * @param keepComments 是否保留注释
+     * @throws HoconException 解析异常
+     */
+    void readValue(@NotNull Lexer lexer, boolean keepComments) throws HoconException {
+        resetPrimitive();
         value.clear();
-        String line;
-        ArrayList<String> commentTemp = new ArrayList<>();
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.startsWith("]")) {
-                return;
-            }
-            if (line.startsWith("#")) {
-                if (keepComments) {
-                    int index = line.startsWith("#! ") ? 3 : line.startsWith("#!") || line.startsWith("# ") ? 2 : 1;
-                    commentTemp.add(line.substring(index));
-                } else {
+        Options options = options();
+        List<String> commentTemp = null;
+        while (true) {
+            byte token = lexer.nextValue(true);
+            switch (token) {
+                case Lexer.EOF:
+                case Lexer.END_MAP:
+                case Lexer.END_LIST:
+                    if (primitive != 0 && numbers.length != count) {
+                        numbers = Arrays.copyOf(numbers, count);
+                    }
+                    return;
+                case Lexer.NEWLINE:
+                case Lexer.COMMA:
                     continue;
-                }
+                case Lexer.HEAD:
+                case Lexer.COMMENT:
+                    if (keepComments) {
+                        if (commentTemp == null) {
+                            commentTemp = new ArrayList<>();
+                        }
+                        commentTemp.add(lexer.text());
+                    }
+                    continue;
+                default:
             }
-            if (line.startsWith("{")) {
-                NodeMap node = new NodeMap(options);
-                if (keepComments) {
-                    node.setComments(commentTemp);
-                    commentTemp = new ArrayList<>();
-                }
-                value.add(node);
-                if (!line.endsWith("}")) {
-                    node.readValue(reader, keepComments);
-                }
-            } else if (line.startsWith("[")) {
-                NodeList list = new NodeList(options);
-                if (keepComments) {
-                    list.setComments(commentTemp);
-                    commentTemp = new ArrayList<>();
-                }
-                value.add(list);
-                if (!line.endsWith("]")) {
-                    list.readValue(reader, keepComments);
+            if (token == Lexer.TEXT && commentTemp == null && lexer.textIsLong() && append(PRIMITIVE_LONG, lexer.longValue())) {
+                continue;
+            }
+            Node node = readNode(options, lexer, token, keepComments);
+            if (node == null) {
+                throw lexer.error("Unexpected token");
+            }
+            if (commentTemp != null) {
+                node.setComments(commentTemp);
+                commentTemp = null;
+            }
+            appendParsed(node);
+        }
+    }
+
+    /**
+     * 追加一个读取的元素, 可以时以基本类型存储, 不标记修改.
+     *
+     * @param node 元素
+     */
+    void appendParsed(@NotNull Node node) {
+        if (value.isEmpty() && node instanceof NodeBase && node.getComments() == null) {
+            String text = ((NodeBase) node).getString();
+            char first = text.isEmpty() ? 0 : text.charAt(0);
+            if (first == '-' || first >= '0' && first <= '9') {
+                try {
+                    if (primitive != PRIMITIVE_DOUBLE) {
+                        long number = Long.parseLong(text);
+                        if (Long.toString(number).equals(text) && append(PRIMITIVE_LONG, number)) {
+                            return;
+                        }
+                    }
+                } catch (NumberFormatException ignored) {
                 }
-            } else {
-                NodeBase base = new NodeBase(options, unquotation(line));
-                if (keepComments) {
-                    base.setComments(commentTemp);
-                    commentTemp = new ArrayList<>();
+                try {
+                    double number = Double.parseDouble(text);
+                    if (Double.toString(number).equals(text) && append(PRIMITIVE_DOUBLE, Double.doubleToRawLongBits(number))) {
+                        return;
+                    }
+                } catch (NumberFormatException ignored) {
                 }
-                value.add(base);
             }
         }
+        inflate();
+        attach(node, false);
+        value.add(node);
+    }
+
+    /**
+     * 以基本类型追加元素.
+     *
+     * @return 是否追加, 已有结点元素或元素类型不同时返回 false
+     */
+    private boolean append(byte kind, long bits) {
+        if (!value.isEmpty() || primitive != 0 && primitive != kind) {
+            return false;
+        }
+        if (primitive == 0) {
+            primitive = kind;
+            numbers = new long[8];
+        } else if (count == numbers.length) {
+            numbers = Arrays.copyOf(numbers, count << 1);
+        }
+        numbers[count++] = bits;
+        return true;
+    }
+
+    /**
+     * 基本类型元素的文本.
+     */
+    private String text(int index) {
+        return primitive == PRIMITIVE_LONG ? Long.toString(numbers[index]) : Double.toString(Double.longBitsToDouble(numbers[index]));
+    }
+
+    /**
+     * 获取索引位置的元素, 不展开基本类型存储.<br>
+     * 基本类型元素每次返回新建的结点.
+     *
+     * @param index 索引位置
+     * @return 元素
+     */
+    Node peek(int index) {
+        return primitive != 0 ? element(index) : value.get(index);
+    }
+
+    /**
+     * 为基本类型元素新建结点.
+     */
+    private NodeBase element(int index) {
+        return new NodeBase(options(), text(index));
+    }
+
+    /**
+     * 把基本类型存储展开成结点, 不标记修改.
+     */
+    private void inflate() {
+        if (primitive != 0) {
+            value.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                NodeBase node = element(i);
+                attach(node, false);
+                value.add(node);
+            }
+            resetPrimitive();
+        }
+    }
+
+    private void resetPrimitive() {
+        primitive = 0;
+        numbers = null;
+        count = 0;
     }
 
     @Override
     public void writeValue(int indent, BufferedWriter writer) throws Exception {
-        if (notEmpty()) {
+        writeValue(options(), indent, writer);
+    }
+
+    @Override
+    void writeValue(@NotNull Options options, int indent, BufferedWriter writer) throws Exception {
+        if (primitive != 0) {
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    writer.newLine();
+                }
+                writeIndent(options, indent, writer);
+                writeQuotation(text(i), writer);
+            }
+        } else if (notEmpty()) {
             Iterator<Node> it = value.iterator();
             while (it.hasNext()) {
-                writeIndent(indent, writer);
+                writeIndent(options, indent, writer);
                 Node node = it.next();
                 if (node instanceof NodeMap) {
                     writer.write("{");
                     if (node.notEmpty()) {
                         writer.newLine();
-                        node.writeValue(indent + 1, writer);
+                        writeValue(node, options, indent + 1, writer);
                         writer.newLine();
-                        writeIndent(indent, writer);
+                        writeIndent(options, indent, writer);
                     }
                     writer.write("}");
                 } else if (node instanceof NodeList) {
                     writer.write("[");
                     if (node.notEmpty()) {
                         writer.newLine();
-                        node.writeValue(indent + 1, writer);
+                        writeValue(node, options, indent + 1, writer);
                         writer.newLine();
-                        writeIndent(indent, writer);
+                        writeIndent(options, indent, writer);
                     }
                     writer.write("]");
                 } else {
-                    node.writeValue(indent + 1, writer);
+                    writeValue(node, options, indent + 1, writer);
                 }
                 if (it.hasNext()) {
                     writer.newLine();
@@ -207,12 +509,70 @@ public class NodeList extends AbstractNode<ArrayList<Node>> implements Node {
 
     @Override
     public void translate(byte cfg) {
+        if (!frozen) {
+            inflate();
+        }
         value.forEach(element -> element.translate(cfg));
     }
 
+    @Override
+    void markClean() {
+        if (frozen) {
+            return;
+        }
+        super.markClean();
+        for (Node node : value) {
+            if (node instanceof AbstractNode) {
+                ((AbstractNode<?>) node).markClean();
+            }
+        }
+    }
+
+    @Override
+    boolean sameAs(Node other) {
+        if (!(other instanceof NodeList) || !sameComments(other)) {
+            return false;
+        }
+        NodeList list = (NodeList) other;
+        int size = size();
+        if (size != list.size()) {
+            return false;
+        }
+        if (primitive != 0 && primitive == list.primitive) {
+            for (int i = 0; i < size; i++) {
+                if (numbers[i] != list.numbers[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            Node node = peek(i);
+            Node another = list.peek(i);
+            if (!(node instanceof AbstractNode) || !((AbstractNode<?>) node).sameAs(another)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public NodeList freeze() {
+        if (!frozen) {
+            detach();
+            value.forEach(element -> {
+                if (element instanceof AbstractNode) {
+                    ((AbstractNode<?>) element).freeze();
+                }
+            });
+            frozen = true;
+        }
+        return this;
+    }
+
     @Override
     public NodeList copy() {
-        return new NodeList(this);
+        return frozen ? this : new NodeList(this);
     }
 
     @Override
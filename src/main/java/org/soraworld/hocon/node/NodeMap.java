@@ -2,7 +2,10 @@ package org.soraworld.hocon.node;
 
 import org.jetbrains.annotations.NotNull;
 import org.soraworld.hocon.exception.HoconException;
+import org.soraworld.hocon.exception.UncheckedHoconException;
 import org.soraworld.hocon.serializer.TypeSerializer;
+import org.soraworld.hocon.serializer.TypeSerializers;
+import org.soraworld.hocon.util.Lexer;
 import org.soraworld.hocon.util.Reflects;
 
 import java.io.BufferedReader;
@@ -22,9 +25,32 @@ import static org.soraworld.hocon.node.Options.WRITE;
  */
 public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implements Node {
 
+    /**
+     * 延迟解析的映射块, 首次访问时才解析.<br>
+     * 解析成功后才置为 null, 多个线程同时首次访问时只解析一次.
+     */
+    private volatile Deferred deferred;
+    /**
+     * 是否启用扁平路径索引.
+     */
+    private boolean indexed;
+    /**
+     * 完整路径 -> 结点 的扁平索引, 为 null 时在下次查找前重建.
+     */
+    private volatile HashMap<NodePath, Node> index;
+
     public NodeMap(@NotNull NodeMap origin) {
-        super(origin.options, new LinkedHashMap<>(), origin.comments);
-        origin.value.forEach((key, val) -> this.value.put(key, val.copy()));
+        super(origin.options(), new CompactMap(), origin.comments);
+        if (origin.deferred != null) {
+            // 未解析的块直接共享源文本
+            this.deferred = origin.deferred;
+        } else {
+            origin.value.forEach((key, val) -> {
+                Node node = val.copy();
+                attach(node, true);
+                this.value.put(key, node);
+            });
+        }
     }
 
     /**
@@ -33,7 +59,7 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param options 配置选项
      */
     public NodeMap(@NotNull Options options) {
-        super(options, new LinkedHashMap<>());
+        super(options, new CompactMap());
     }
 
     /**
@@ -43,11 +69,11 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param comment 注释
      */
     public NodeMap(@NotNull Options options, String comment) {
-        super(options, new LinkedHashMap<>(), comment);
+        super(options, new CompactMap(), comment);
     }
 
     public NodeMap(@NotNull Options options, List<String> comments) {
-        super(options, new LinkedHashMap<>(), comments);
+        super(options, new CompactMap(), comments);
     }
 
     /**
@@ -67,6 +93,7 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param target 修改对象
      */
     public void modify(@NotNull Object target) {
+        Options options = options();
         List<Field> fields = target instanceof Class<?> ? Reflects.getStaticFields((Class<?>) target) : Reflects.getFields(target.getClass());
         for (Field field : fields) {
             Setting setting = field.getAnnotation(Setting.class);
@@ -74,11 +101,11 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
                 Type fieldType = field.getGenericType();
                 TypeSerializer<Object, Node> serializer = options.getSerializer(fieldType);
                 if (serializer != null) {
-                    Paths paths = new Paths(setting.path().isEmpty() ? field.getName() : setting.path());
-                    Node node = get(paths);
+                    Node node = get(NodePath.of(setting.path().isEmpty() ? field.getName() : setting.path()));
                     if (node != null) {
                         try {
                             if ((setting.trans() & 0b1010) != 0) {
+                                node = mutable(node);
                                 node.translate(READ);
                             }
                             field.set(target, serializer.deserialize(fieldType, node));
@@ -142,18 +169,33 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param overwrite   是否覆盖旧结点内容
      */
     public void extract(@NotNull Object source, boolean keepComment, boolean clearOld, boolean overwrite) {
-        NodeMap oldNode = new NodeMap(this);
+        checkMutable();
+        materialize();
+        Options options = options();
+        boolean clean = !dirty;
+        // 第一个已修改的祖先, 提取前后内容相同时还原到此为止的修改标记
+        AbstractNode<?> stop = parent();
+        while (stop != null && !stop.dirty) {
+            stop = stop.parent();
+        }
+        NodeMap oldNode;
         if (clearOld) {
-            value.clear();
+            // 旧结点随后被整体替换, 只需浅复制
+            oldNode = new NodeMap(options);
+            oldNode.comments = comments;
+            oldNode.value.putAll(value);
+            clear();
+        } else {
+            oldNode = new NodeMap(this);
         }
         List<Field> fields = source instanceof Class<?> ? Reflects.getStaticFields((Class<?>) source) : Reflects.getFields(source.getClass());
         for (Field field : fields) {
             Setting setting = field.getAnnotation(Setting.class);
             if (setting != null) {
                 try {
-                    Paths paths = new Paths(setting.path().isEmpty() ? field.getName() : setting.path());
+                    NodePath paths = NodePath.of(setting.path().isEmpty() ? field.getName() : setting.path());
                     String comment = (setting.trans() & 0b1001) == 0 ? setting.comment() : options.translateComment(setting.comment(), paths);
-                    Node old = oldNode.get(paths.copy());
+                    Node old = oldNode.get(paths);
                     List<String> list = old != null ? old.getComments() : null;
                     Type fieldType = field.getGenericType();
                     TypeSerializer<Object, Node> serializer = options.getSerializer(fieldType);
@@ -167,17 +209,19 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
                             if ((setting.trans() & 0b1100) != 0) {
                                 node.translate(WRITE);
                             }
+                            // 默认序列化器返回新建的结点, 直接转移所有权; 注册的序列化器可能返回共享的结点, 放置时复制
+                            boolean owned = TypeSerializers.isDefault(serializer);
                             if (overwrite) {
-                                if (set(paths, node, comment)) {
+                                if (owned ? setOwned(paths, node, comment) : set(paths, node, comment)) {
                                     if (comment.isEmpty() && keepComment) {
-                                        node.setComments(list);
+                                        get(paths).setComments(list);
                                     }
                                 } else if (options.isDebug()) {
                                     System.out.println("NodeMap set failed, paths is empty or not-map path !!");
                                 }
-                            } else if (put(paths, node, comment)) {
+                            } else if (owned ? putOwned(paths, node, comment) : put(paths, node, comment)) {
                                 if (comment.isEmpty() && keepComment) {
-                                    node.setComments(list);
+                                    get(paths).setComments(list);
                                 }
                             } else if (options.isDebug()) {
                                 System.out.println("NodeMap put failed, node type not match !!");
@@ -195,6 +239,151 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
                 }
             }
         }
+        if (clean && dirty && sameAs(oldNode)) {
+            markClean();
+            for (AbstractNode<?> node = parent(); node != stop; node = node.parent()) {
+                node.dirty = false;
+            }
+        }
+    }
+
+    /**
+     * 增量提取对象{@link Setting} 修饰的字段的值到map对应的结点.<br>
+     * 保留旧结点的注释, 不清除字段以外的旧结点.
+     *
+     * @param source 源对象
+     * @return 结点内容是否有变化
+     * @see #extractChanges(Object, boolean)
+     */
+    public boolean extractChanges(@NotNull Object source) {
+        return extractChanges(source, true);
+    }
+
+    /**
+     * 增量提取对象{@link Setting} 修饰的字段的值到map对应的结点.<br>
+     * 与 {@link #extract(Object, boolean, boolean, boolean)} 不同, 不复制也不重建整个结点树,<br>
+     * 而是逐个字段与现有结点比较, 内容相同的结点原样保留, 映射结点逐层合并, 只替换变化的子结点.<br>
+     * 没有任何变化时不会产生修改标记, 适合定时保存前频繁调用.
+     *
+     * @param source      源对象
+     * @param keepComment 是否保留旧结点注释
+     * @return 结点内容是否有变化
+     */
+    public boolean extractChanges(@NotNull Object source, boolean keepComment) {
+        checkMutable();
+        materialize();
+        Options options = options();
+        boolean changed = false;
+        List<Field> fields = source instanceof Class<?> ? Reflects.getStaticFields((Class<?>) source) : Reflects.getFields(source.getClass());
+        for (Field field : fields) {
+            Setting setting = field.getAnnotation(Setting.class);
+            if (setting != null) {
+                try {
+                    NodePath paths = NodePath.of(setting.path().isEmpty() ? field.getName() : setting.path());
+                    Type fieldType = field.getGenericType();
+                    TypeSerializer<Object, Node> serializer = options.getSerializer(fieldType);
+                    if (serializer == null && fieldType instanceof Class<?> && Serializable.class.isAssignableFrom((Class<?>) fieldType)) {
+                        serializer = options.getSerializer(Serializable.class);
+                    }
+                    if (serializer != null) {
+                        Object value = field.get(source);
+                        if (value != null && paths.size() > 0) {
+                            Node node = serializer.serialize(fieldType, value, options);
+                            if ((setting.trans() & 0b1100) != 0) {
+                                node.translate(WRITE);
+                            }
+                            String comment = (setting.trans() & 0b1001) == 0 ? setting.comment() : options.translateComment(setting.comment(), paths);
+                            // 注册的序列化器可能返回共享的结点, 先复制再比较和放置
+                            node = commented(TypeSerializers.isDefault(serializer) ? node : node.copy(), comment);
+                            Node old = get(paths);
+                            if (old == null) {
+                                if (setOwned(paths, node, "")) {
+                                    changed = true;
+                                } else if (options.isDebug()) {
+                                    System.out.println("NodeMap set failed, paths is empty or not-map path !!");
+                                }
+                            } else {
+                                int last = paths.size() - 1;
+                                if (reuse(old, node, keepComment) && thaw(paths, last).merge(paths.get(last), node, keepComment)) {
+                                    changed = true;
+                                }
+                            }
+                        }
+                    } else if (options.isDebug()) {
+                        System.out.println("No TypeSerializer for the type of field "
+                                + field.getDeclaringClass().getTypeName() + "." + field.getName()
+                                + " with @Setting.");
+                    }
+                } catch (HoconException | IllegalAccessException e) {
+                    if (options.isDebug()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 新结点没有注释时沿用旧结点的注释, 并比较两者是否不同.
+     *
+     * @return 是否需要替换或合并
+     */
+    private static boolean reuse(Node old, Node node, boolean keepComment) {
+        if (keepComment && old instanceof AbstractNode && node instanceof AbstractNode) {
+            AbstractNode<?> fresh = (AbstractNode<?>) node;
+            if (fresh.comments == null && !fresh.frozen) {
+                fresh.comments = ((AbstractNode<?>) old).comments;
+            }
+        }
+        return !(old instanceof AbstractNode) || !((AbstractNode<?>) old).sameAs(node);
+    }
+
+    /**
+     * 把新结点合并到键对应的子结点上.<br>
+     * 两者都是映射且旧映射未冻结时逐个子结点合并, 保留旧映射和内容相同的子结点; 否则直接替换.
+     *
+     * @param key         键
+     * @param node        新结点
+     * @param keepComment 是否保留旧结点注释
+     * @return 是否有变化
+     */
+    private boolean merge(String key, Node node, boolean keepComment) {
+        Node old = value.get(key);
+        if (old instanceof NodeMap && node instanceof NodeMap && !((NodeMap) old).frozen) {
+            NodeMap map = (NodeMap) old;
+            NodeMap from = (NodeMap) node;
+            map.materialize();
+            from.materialize();
+            boolean changed = false;
+            if (!Arrays.equals(map.comments, from.comments)) {
+                map.comments = from.comments;
+                map.markDirty();
+                changed = true;
+            }
+            if (map.value.entrySet().removeIf(entry -> {
+                if (from.value.containsKey(entry.getKey())) {
+                    return false;
+                }
+                map.release(entry.getValue());
+                return true;
+            })) {
+                map.invalidateIndex();
+                map.markDirty();
+                changed = true;
+            }
+            for (Map.Entry<String, Node> entry : from.value.entrySet()) {
+                Node current = map.value.get(entry.getKey());
+                if ((current == null || reuse(current, entry.getValue(), keepComment)) && map.merge(entry.getKey(), entry.getValue(), keepComment)) {
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+        release(value.put(key, node));
+        invalidateIndex();
+        attach(node, true);
+        return true;
     }
 
     /**
@@ -203,6 +392,7 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @return 不可变键集合
      */
     public Set<String> keys() {
+        materialize();
         return Collections.unmodifiableSet(value.keySet());
     }
 
@@ -210,7 +400,37 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * 清空 map.
      */
     public void clear() {
-        value.clear();
+        checkMutable();
+        if (deferred != null || !value.isEmpty()) {
+            deferred = null;
+            value.values().forEach(this::release);
+            value.clear();
+            invalidateIndex();
+            markDirty();
+        }
+    }
+
+    /**
+     * 是否启用了扁平路径索引.
+     *
+     * @return 是否启用
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * 设置是否启用扁平路径索引.<br>
+     * 启用后按完整路径的查找只需一次哈希查找, 不再逐层查找.<br>
+     * 索引在首次查找时建立(会解析全部延迟的子映射), 任意层级的映射结构变化后在下次查找时重建,<br>
+     * 通过本结点的 put set remove 修改非映射结点时直接更新索引.<br>
+     * 适合读多写少的根结点.
+     *
+     * @param indexed 是否启用
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        this.index = null;
     }
 
     /**
@@ -219,127 +439,278 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @return size
      */
     public int size() {
+        materialize();
         return value.size();
     }
 
     public boolean isEmpty() {
+        materialize();
         return value.isEmpty();
     }
 
     public boolean containsKey(String key) {
+        materialize();
         return value.containsKey(key);
     }
 
     public boolean containsValue(Node node) {
+        materialize();
         return value.containsValue(node);
     }
 
     public boolean put(@NotNull String paths, @NotNull Object obj) {
-        return put(new Paths(paths), obj, "");
+        return put(NodePath.of(paths), obj, "");
     }
 
     public boolean put(@NotNull String paths, @NotNull Object obj, String comment) {
-        return put(new Paths(paths), obj, comment);
+        return put(NodePath.of(paths), obj, comment);
     }
 
     public boolean put(@NotNull Paths paths, @NotNull Object obj) {
-        return put(paths, obj, "");
+        return put(NodePath.of(paths), obj, "");
     }
 
     public boolean put(@NotNull Paths paths, @NotNull Object obj, String comment) {
-        if (paths.empty()) {
+        return put(NodePath.of(paths), obj, comment);
+    }
+
+    public boolean put(@NotNull NodePath path, @NotNull Object obj) {
+        return put(path, obj, "");
+    }
+
+    /**
+     * 放置结点.<br>
+     * 中间结点不存在时自动创建, 中间结点不是映射时失败,<br>
+     * 最后结点已存在且类型不同时失败.
+     *
+     * @param path    路径
+     * @param obj     对象
+     * @param comment 注释
+     * @return 是否成功
+     */
+    public boolean put(@NotNull NodePath path, @NotNull Object obj, String comment) {
+        return put(path, obj, comment, false);
+    }
+
+    public boolean putOwned(@NotNull String paths, @NotNull Node node) {
+        return put(NodePath.of(paths), node, "", true);
+    }
+
+    public boolean putOwned(@NotNull NodePath path, @NotNull Node node) {
+        return put(path, node, "", true);
+    }
+
+    /**
+     * 放置结点, 不复制.<br>
+     * 结点的所有权转移给映射, 调用者之后不应再持有或修改该结点.
+     *
+     * @param path    路径
+     * @param node    结点
+     * @param comment 注释
+     * @return 是否成功
+     * @see #put(NodePath, Object, String)
+     */
+    public boolean putOwned(@NotNull NodePath path, @NotNull Node node, String comment) {
+        return put(path, node, comment, true);
+    }
+
+    private boolean put(NodePath path, Object obj, String comment, boolean owned) {
+        checkMutable();
+        int last = path.size() - 1;
+        if (last < 0) {
             return false;
         }
-        if (paths.hasNext()) {
-            Node parent = value.get(paths.first());
+        HashMap<NodePath, Node> index = this.index;
+        NodeMap map = this;
+        for (int i = 0; i < last; i++) {
+            map.materialize();
+            Node parent = map.value.get(path.get(i));
             if (parent == null) {
                 // 父结点为空，满足条件，直接 set
-                NodeMap map = new NodeMap(options);
-                value.put(paths.first(), map);
-                return map.set(paths.next(), obj, comment);
+                if (map.frozen) {
+                    map = thaw(path, i);
+                }
+                NodeMap child = new NodeMap(map.options());
+                map.value.put(path.get(i), child);
+                map.invalidateIndex();
+                map.attach(child, true);
+                return child.set(path, i + 1, obj, comment, owned);
             }
-            if (parent instanceof NodeMap) {
-                return ((NodeMap) parent).put(paths.next(), obj, comment);
+            if (!(parent instanceof NodeMap)) {
+                // 中间结点不是 NodeMap 无法添加子结点
+                return false;
             }
-            // 中间结点不是 NodeMap 无法添加子结点
-            return false;
+            map = (NodeMap) parent;
         }
         // 最后结点
-        Node old = value.get(paths.first());
-        Node node = options.serialize(obj);
+        map.materialize();
+        Node old = map.value.get(path.get(last));
+        Node node = owned ? (Node) obj : map.options().serialize(obj);
         if (node == null) {
-            node = new NodeBase(options, String.valueOf(obj));
+            node = new NodeBase(map.options(), String.valueOf(obj));
         }
-        node.addComment(comment);
+        node = commented(node, comment);
         // 最后结点为空或可接受类型
         if (old == null || old.getType() == node.getType()) {
-            value.put(paths.first(), node);
+            if (map.frozen) {
+                map = thaw(path, last);
+                index = null;
+            }
+            map.release(map.value.put(path.get(last), node));
+            map.invalidateIndex();
+            map.attach(node, true);
+            updateIndex(index, path, old, node);
             return true;
         }
         return false;
     }
 
     public boolean set(String paths, @NotNull Object obj) {
-        return set(new Paths(paths), obj);
+        return set(NodePath.of(paths), obj, "");
     }
 
     public boolean set(String paths, @NotNull Object obj, String comment) {
-        return set(new Paths(paths), obj, comment);
+        return set(NodePath.of(paths), obj, comment);
     }
 
     public boolean set(@NotNull Paths paths, @NotNull Object obj) {
-        return set(paths, obj, "");
+        return set(NodePath.of(paths), obj, "");
     }
 
     public boolean set(@NotNull Paths paths, @NotNull Object obj, String comment) {
-        if (paths.empty()) {
+        return set(NodePath.of(paths), obj, comment);
+    }
+
+    public boolean set(@NotNull NodePath path, @NotNull Object obj) {
+        checkMutable();
+        return set(path, 0, obj, "", false);
+    }
+
+    /**
+     * 设置结点.<br>
+     * 中间结点不存在时自动创建, 中间结点不是映射时失败, 最后结点直接覆盖.
+     *
+     * @param path    路径
+     * @param obj     对象
+     * @param comment 注释
+     * @return 是否成功
+     */
+    public boolean set(@NotNull NodePath path, @NotNull Object obj, String comment) {
+        checkMutable();
+        return set(path, 0, obj, comment, false);
+    }
+
+    public boolean setOwned(@NotNull String paths, @NotNull Node node) {
+        return setOwned(NodePath.of(paths), node, "");
+    }
+
+    public boolean setOwned(@NotNull NodePath path, @NotNull Node node) {
+        return setOwned(path, node, "");
+    }
+
+    /**
+     * 设置结点, 不复制.<br>
+     * 结点的所有权转移给映射, 调用者之后不应再持有或修改该结点.
+     *
+     * @param path    路径
+     * @param node    结点
+     * @param comment 注释
+     * @return 是否成功
+     * @see #set(NodePath, Object, String)
+     */
+    public boolean setOwned(@NotNull NodePath path, @NotNull Node node, String comment) {
+        checkMutable();
+        return set(path, 0, node, comment, true);
+    }
+
+    private boolean set(NodePath path, int from, Object obj, String comment, boolean owned) {
+        int last = path.size() - 1;
+        if (last < from) {
             return false;
         }
-        if (paths.hasNext()) {
-            Node parent = value.computeIfAbsent(paths.first(), key -> new NodeMap(options));
-            if (parent instanceof NodeMap) {
-                return ((NodeMap) parent).set(paths.next(), obj, comment);
+        HashMap<NodePath, Node> index = from == 0 ? this.index : null;
+        NodeMap map = this;
+        for (int i = from; i < last; i++) {
+            map.materialize();
+            Node parent = map.value.get(path.get(i));
+            if (parent == null) {
+                parent = new NodeMap(map.options());
+                map.value.put(path.get(i), parent);
+                map.invalidateIndex();
+                map.attach(parent, true);
+                index = null;
             }
-            return false;
+            if (!(parent instanceof NodeMap)) {
+                return false;
+            }
+            if (((NodeMap) parent).frozen) {
+                // 冻结的子映射复制后替换, 原映射保持不变
+                parent = map.thaw(path.get(i), (NodeMap) parent);
+                index = null;
+            }
+            map = (NodeMap) parent;
         }
         // 最后结点
-        Node node = options.serialize(obj);
+        map.materialize();
+        Node node = owned ? (Node) obj : map.options().serialize(obj);
         if (node == null) {
-            node = new NodeBase(options, String.valueOf(obj));
+            node = new NodeBase(map.options(), String.valueOf(obj));
         }
-        node.addComment(comment);
-        value.put(paths.first(), node);
+        node = commented(node, comment);
+        Node old = map.value.put(path.get(last), node);
+        map.release(old);
+        map.invalidateIndex();
+        map.attach(node, true);
+        updateIndex(index, path, old, node);
         return true;
     }
 
     public Node get(String paths) {
-        return get(new Paths(paths));
+        return get(NodePath.of(paths));
     }
 
     public Node get(@NotNull Paths paths) {
-        if (paths.hasNext()) {
-            Node node = value.get(paths.first());
-            if (node instanceof NodeMap) {
-                return ((NodeMap) node).get(paths.next());
-            } else {
-                return null;
-            }
+        return get(NodePath.of(paths));
+    }
+
+    /**
+     * 获取路径对应结点.
+     *
+     * @param path 路径
+     * @return 结点, 不存在时返回 null
+     */
+    public Node get(@NotNull NodePath path) {
+        if (indexed && path.size() > 0) {
+            return index().get(path);
         }
-        return value.get(paths.first());
+        NodeMap map = parentOf(path);
+        return map == null ? null : map.value.get(path.size() == 0 ? "" : path.get(path.size() - 1));
     }
 
     public NodeBase getBase(String paths) {
-        Node node = get(new Paths(paths));
+        return getBase(NodePath.of(paths));
+    }
+
+    public NodeBase getBase(@NotNull NodePath path) {
+        Node node = get(path);
         return node instanceof NodeBase ? (NodeBase) node : null;
     }
 
     public NodeList getList(String paths) {
-        Node node = get(new Paths(paths));
+        return getList(NodePath.of(paths));
+    }
+
+    public NodeList getList(@NotNull NodePath path) {
+        Node node = get(path);
         return node instanceof NodeList ? (NodeList) node : null;
     }
 
     public NodeMap getMap(String paths) {
-        Node node = get(new Paths(paths));
+        return getMap(NodePath.of(paths));
+    }
+
+    public NodeMap getMap(@NotNull NodePath path) {
+        Node node = get(path);
         return node instanceof NodeMap ? (NodeMap) node : null;
     }
 
@@ -350,7 +721,7 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @return 移除的结点
      */
     public Node remove(String paths) {
-        return remove(new Paths(paths));
+        return remove(NodePath.of(paths));
     }
 
     /**
@@ -360,15 +731,190 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @return 移除的结点
      */
     public Node remove(@NotNull Paths paths) {
-        if (paths.hasNext()) {
-            Node node = value.get(paths.first());
+        return remove(NodePath.of(paths));
+    }
+
+    /**
+     * 移除路径对应结点.
+     *
+     * @param path 路径
+     * @return 移除的结点
+     */
+    public Node remove(@NotNull NodePath path) {
+        checkMutable();
+        NodeMap map = parentOf(path);
+        String key = path.size() == 0 ? "" : path.get(path.size() - 1);
+        if (map == null || !map.value.containsKey(key)) {
+            return null;
+        }
+        HashMap<NodePath, Node> index = this.index;
+        if (map.frozen) {
+            map = thaw(path, path.size() - 1);
+            index = null;
+        }
+        Node node = map.value.remove(key);
+        if (node != null) {
+            map.release(node);
+            map.invalidateIndex();
+            map.markDirty();
+            updateIndex(index, path, node, null);
+        }
+        return node;
+    }
+
+    /**
+     * 获取扁平索引, 不存在时重建.
+     *
+     * @return 索引
+     */
+    private HashMap<NodePath, Node> index() {
+        HashMap<NodePath, Node> current = index;
+        if (current == null) {
+            current = new HashMap<>();
+            buildIndex(current, NodePath.EMPTY, this);
+            index = current;
+        }
+        return current;
+    }
+
+    private static void buildIndex(HashMap<NodePath, Node> index, NodePath prefix, NodeMap map) {
+        map.materialize();
+        for (Map.Entry<String, Node> entry : map.value.entrySet()) {
+            NodePath path = prefix.child(entry.getKey());
+            Node node = entry.getValue();
+            index.put(path, node);
             if (node instanceof NodeMap) {
-                return ((NodeMap) node).remove(paths.next());
+                buildIndex(index, path, (NodeMap) node);
+            }
+        }
+    }
+
+    /**
+     * 映射结构变化, 使自身及全部祖先的扁平索引失效.
+     */
+    private void invalidateIndex() {
+        for (AbstractNode<?> node = this; node != null; node = node.parent()) {
+            if (node instanceof NodeMap) {
+                ((NodeMap) node).index = null;
+            }
+        }
+    }
+
+    /**
+     * 本结点上对非映射结点的修改直接更新索引, 其余情况索引保持失效, 下次查找时重建.
+     *
+     * @param index 修改前的索引
+     * @param path  修改的路径
+     * @param old   旧结点
+     * @param node  新结点, 移除时为 null
+     */
+    private void updateIndex(HashMap<NodePath, Node> index, NodePath path, Node old, Node node) {
+        if (index != null && this.index == null && !(old instanceof NodeMap) && !(node instanceof NodeMap)) {
+            if (node == null) {
+                index.remove(path);
             } else {
+                index.put(path, node);
+            }
+            this.index = index;
+        }
+    }
+
+    /**
+     * 复制替换冻结的子映射.
+     *
+     * @param key   键
+     * @param child 冻结的子映射
+     * @return 替换后的可修改子映射, 其子结点仍与原映射共享
+     */
+    private NodeMap thaw(String key, NodeMap child) {
+        NodeMap copy = new NodeMap(child);
+        value.put(key, copy);
+        invalidateIndex();
+        attach(copy, true);
+        return copy;
+    }
+
+    /**
+     * 沿路径复制替换冻结的映射, 路径上的映射必须都已存在.
+     *
+     * @param path 路径
+     * @param end  结束位置(不含)
+     * @return 路径 [0, end) 对应的可修改映射
+     */
+    private NodeMap thaw(NodePath path, int end) {
+        NodeMap map = this;
+        for (int i = 0; i < end; i++) {
+            NodeMap child = (NodeMap) map.value.get(path.get(i));
+            map = child.frozen ? map.thaw(path.get(i), child) : child;
+        }
+        return map;
+    }
+
+    /**
+     * 为待放置的结点添加注释.<br>
+     * 冻结的结点总是先浅复制, 放置后仍可修改注释, 冻结的原结点保持不变.
+     */
+    private static Node commented(Node node, String comment) {
+        if (node instanceof AbstractNode && ((AbstractNode<?>) node).frozen) {
+            if (node instanceof NodeMap) {
+                node = new NodeMap((NodeMap) node);
+            } else if (node instanceof NodeList) {
+                node = new NodeList((NodeList) node);
+            } else if (node instanceof NodeBase) {
+                node = new NodeBase((NodeBase) node);
+            }
+        }
+        if (comment != null) {
+            node.addComment(comment);
+        }
+        return node;
+    }
+
+    /**
+     * 冻结结点的可修改深复制, 未冻结时返回自身.
+     */
+    private static Node mutable(Node node) {
+        if (!(node instanceof AbstractNode) || !((AbstractNode<?>) node).frozen) {
+            return node;
+        }
+        if (node instanceof NodeMap) {
+            NodeMap origin = (NodeMap) node;
+            NodeMap map = new NodeMap(origin.options());
+            map.comments = origin.comments;
+            origin.value.forEach((key, val) -> map.value.put(key, mutable(val)));
+            return map;
+        }
+        if (node instanceof NodeList) {
+            NodeList origin = (NodeList) node;
+            if (origin.isPrimitive()) {
+                return new NodeList(origin);
+            }
+            NodeList list = new NodeList(origin.options());
+            list.comments = origin.comments;
+            origin.value.forEach(element -> list.value.add(mutable(element)));
+            return list;
+        }
+        return node instanceof NodeBase ? new NodeBase((NodeBase) node) : node;
+    }
+
+    /**
+     * 查找路径最后一段所在的映射, 并确保其已解析.
+     *
+     * @param path 路径
+     * @return 映射, 中间结点不存在或不是映射时返回 null
+     */
+    private NodeMap parentOf(NodePath path) {
+        NodeMap map = this;
+        for (int i = 0, last = path.size() - 1; i < last; i++) {
+            map.materialize();
+            Node node = map.value.get(path.get(i));
+            if (!(node instanceof NodeMap)) {
                 return null;
             }
+            map = (NodeMap) node;
         }
-        return value.remove(paths.first());
+        map.materialize();
+        return map;
     }
 
     /**
@@ -378,11 +924,15 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param comment 注释
      */
     public void addComment(String paths, String comment) {
-        addComment(new Paths(paths), comment);
+        addComment(NodePath.of(paths), comment);
     }
 
     public void addComment(@NotNull Paths paths, String comment) {
-        Node node = get(paths);
+        addComment(NodePath.of(paths), comment);
+    }
+
+    public void addComment(@NotNull NodePath path, String comment) {
+        Node node = get(path);
         if (node != null) {
             node.addComment(comment);
         }
@@ -395,11 +945,15 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      * @param comments 多行注释
      */
     public void setComments(String paths, List<String> comments) {
-        setComments(new Paths(paths), comments);
+        setComments(NodePath.of(paths), comments);
     }
 
     public void setComments(@NotNull Paths paths, List<String> comments) {
-        Node node = get(paths);
+        setComments(NodePath.of(paths), comments);
+    }
+
+    public void setComments(@NotNull NodePath path, List<String> comments) {
+        Node node = get(path);
         if (node != null) {
             node.setComments(comments);
         }
@@ -414,6 +968,7 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
      */
     public HashMap<String, String> asStringMap() {
         HashMap<String, String> map = new HashMap<>();
+        materialize();
         for (Map.Entry<String, Node> entry : value.entrySet()) {
             String key = entry.getKey();
             Node node = entry.getValue();
@@ -429,74 +984,139 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
 
     @Override
     public boolean notEmpty() {
+        materialize();
         return !value.isEmpty();
     }
 
     @Override
     public void readValue(BufferedReader reader, boolean keepComments) throws Exception {
-        value.clear();
-        String line;
-        ArrayList<String> commentTemp = new ArrayList<>();
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.startsWith("}") || line.startsWith("]")) {
-                return;
-            }
-            if (line.isEmpty()) {
-                continue;
-            }
-            if (line.startsWith("#")) {
-                if (keepComments) {
-                    int index = line.startsWith("#! ") ? 3 : line.startsWith("#!") || line.startsWith("# ") ? 2 : 1;
-                    String text = line.substring(index);
-                    if (line.startsWith("#!") && this instanceof FileNode) {
-                        ((FileNode) this).addHead(text);
-                    } else {
-                        commentTemp.add(text);
+        checkMutable();
+        readValue(new Lexer(reader), keepComments);
+        markDirty();
+    }
+
+    /**
+     * 从词法分析器读取映射内容, 直到映射结束或数据结束.
+     *
+     * @param lexer        词法分析器
+     * @param keepComments 是否保留注释
+     * @throws HoconException 解析异常
+     */
+    void readValue(@NotNull Lexer lexer, boolean keepComments) throws HoconException {
+        readValue(lexer, keepComments, null);
+    }
+
+    /**
+     * 从词法分析器读取映射内容.<br>
+     * 如果提供了源文本, 子映射块只记录位置而不解析, 待首次访问时再解析.
+     *
+     * @param lexer        词法分析器
+     * @param keepComments 是否保留注释
+     * @param source       词法分析器扫描的源文本, 为 null 时立即解析全部内容
+     * @throws HoconException 解析异常
+     */
+    void readValue(@NotNull Lexer lexer, boolean keepComments, char[] source) throws HoconException {
+        reset();
+        Options options = options();
+        List<String> commentTemp = null;
+        while (true) {
+            byte token = lexer.nextKey();
+            switch (token) {
+                case Lexer.EOF:
+                case Lexer.END_MAP:
+                case Lexer.END_LIST:
+                    return;
+                case Lexer.NEWLINE:
+                case Lexer.COMMA:
+                    continue;
+                case Lexer.HEAD:
+                case Lexer.COMMENT:
+                    if (keepComments) {
+                        if (token == Lexer.HEAD && this instanceof FileNode) {
+                            ((FileNode) this).addHead(lexer.text());
+                        } else {
+                            if (commentTemp == null) {
+                                commentTemp = new ArrayList<>();
+                            }
+                            commentTemp.add(lexer.text());
+                        }
                     }
-                } else {
                     continue;
-                }
+                case Lexer.TEXT:
+                    break;
+                default:
+                    throw lexer.error("Unexpected token");
             }
-            // text maybe contains { [ ] } ...
-            if (line.endsWith("{") || (line.contains("{") && line.endsWith("}"))) {
-                NodeMap node = new NodeMap(options);
-                if (keepComments) {
-                    node.setComments(commentTemp);
-                    commentTemp = new ArrayList<>();
-                }
-                String path = line.substring(0, line.indexOf('{') - 1).trim();
-                value.put(unquotation(path), node);
-                if (!line.endsWith("}")) {
-                    node.readValue(reader, keepComments);
-                }
+            String path = lexer.text();
+            token = lexer.nextKey();
+            if (token == Lexer.ASSIGN) {
+                token = lexer.nextValue(false);
+            } else if (token != Lexer.BEGIN_MAP) {
+                throw lexer.error("Expected '=' or '{' after key <" + path + ">");
+            }
+            Node node;
+            if (source != null && token == Lexer.BEGIN_MAP) {
+                NodeMap map = new NodeMap(options);
+                int line = lexer.line();
+                int inline = lexer.inlineDepth();
+                int start = (int) lexer.offset();
+                lexer.skip(token);
+                // 只保留块自身的文本, 读取结束后整个文件的源数组即可回收, 块解析后其文本也随之回收
+                char[] text = Arrays.copyOfRange(source, start, (int) lexer.offset());
+                map.deferred = new Deferred(text, line, inline, keepComments);
+                node = map;
             } else {
-                String path = line.substring(0, line.indexOf('=') - 1).trim();
-                if (line.contains("=") && (line.endsWith("[") || (line.contains("[") && line.endsWith("]")))) {
-                    NodeList list = new NodeList(options);
-                    if (keepComments) {
-                        list.setComments(commentTemp);
-                        commentTemp = new ArrayList<>();
-                    }
-                    value.put(unquotation(path), list);
-                    if (!line.endsWith("]")) {
-                        list.readValue(reader, keepComments);
-                    }
-                } else if (line.contains("=")) {
-                    String text = line.substring(line.indexOf('=') + 1).trim();
-                    NodeBase base = new NodeBase(options, unquotation(text));
-                    if (keepComments) {
-                        base.setComments(commentTemp);
-                        commentTemp = new ArrayList<>();
-                    }
-                    value.put(unquotation(path), base);
-                }
+                node = readNode(options, lexer, token, keepComments);
+            }
+            if (node == null) {
+                // 空值, 如 key = 换行
+                node = new NodeBase(options, "");
+            }
+            if (commentTemp != null) {
+                node.setComments(commentTemp);
+                commentTemp = null;
+            }
+            attach(node, false);
+            value.put(path, node);
+            if (token == Lexer.EOF || token == Lexer.END_MAP || token == Lexer.END_LIST) {
+                return;
             }
         }
     }
 
+    /**
+     * 清空内容, 不标记修改, 用于重新读取.
+     */
+    void reset() {
+        deferred = null;
+        value.values().forEach(this::release);
+        value.clear();
+        invalidateIndex();
+    }
+
+    /**
+     * 以另一映射的全部子结点替换当前内容, 不复制, 不标记修改.<br>
+     * 之后不应再使用源映射.
+     *
+     * @param source 源映射
+     */
+    void moveFrom(@NotNull NodeMap source) {
+        source.materialize();
+        reset();
+        source.value.forEach((key, node) -> {
+            attach(node, false);
+            value.put(key, node);
+        });
+    }
+
     @Override
     public void writeValue(int indent, BufferedWriter writer) throws Exception {
+        writeValue(options(), indent, writer);
+    }
+
+    @Override
+    void writeValue(@NotNull Options options, int indent, BufferedWriter writer) throws Exception {
+        materialize();
         if (notEmpty()) {
             Iterator<Map.Entry<String, Node>> it = value.entrySet().iterator();
             while (it.hasNext()) {
@@ -504,30 +1124,30 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
                 String path = entry.getKey();
                 Node node = entry.getValue();
                 if (path != null && !path.isEmpty() && node != null) {
-                    node.writeComment(indent, writer);
-                    writeIndent(indent, writer);
-                    writer.write(quotation(path));
+                    writeComment(node, options, indent, writer);
+                    writeIndent(options, indent, writer);
+                    writeQuotation(path, writer);
                     if (node instanceof NodeMap) {
                         writer.write(" {");
                         if (node.notEmpty()) {
                             writer.newLine();
-                            node.writeValue(indent + 1, writer);
+                            writeValue(node, options, indent + 1, writer);
                             writer.newLine();
-                            writeIndent(indent, writer);
+                            writeIndent(options, indent, writer);
                         }
                         writer.write('}');
                     } else if (node instanceof NodeList) {
                         writer.write(" = [");
                         if (node.notEmpty()) {
                             writer.newLine();
-                            node.writeValue(indent + 1, writer);
+                            writeValue(node, options, indent + 1, writer);
                             writer.newLine();
-                            writeIndent(indent, writer);
+                            writeIndent(options, indent, writer);
                         }
                         writer.write(']');
                     } else {
                         writer.write(" = ");
-                        node.writeValue(indent + 1, writer);
+                        writeValue(node, options, indent + 1, writer);
                     }
                     if (it.hasNext()) {
                         writer.newLine();
@@ -539,16 +1159,140 @@ public class NodeMap extends AbstractNode<LinkedHashMap<String, Node>> implement
 
     @Override
     public void translate(byte cfg) {
+        materialize();
         value.values().forEach(val -> val.translate(cfg));
     }
 
+    @Override
+    void markClean() {
+        if (frozen) {
+            return;
+        }
+        super.markClean();
+        if (deferred == null) {
+            for (Node node : value.values()) {
+                if (node instanceof AbstractNode) {
+                    ((AbstractNode<?>) node).markClean();
+                }
+            }
+        }
+    }
+
+    @Override
+    boolean sameAs(Node other) {
+        if (!(other instanceof NodeMap) || !sameComments(other)) {
+            return false;
+        }
+        NodeMap map = (NodeMap) other;
+        materialize();
+        map.materialize();
+        if (value.size() != map.value.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, Node>> it = map.value.entrySet().iterator();
+        for (Map.Entry<String, Node> entry : value.entrySet()) {
+            Map.Entry<String, Node> next = it.next();
+            Node node = entry.getValue();
+            if (!entry.getKey().equals(next.getKey()) || !(node instanceof AbstractNode) || !((AbstractNode<?>) node).sameAs(next.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public NodeMap freeze() {
+        if (!frozen) {
+            materialize();
+            detach();
+            value.values().forEach(node -> {
+                if (node instanceof AbstractNode) {
+                    ((AbstractNode<?>) node).freeze();
+                }
+            });
+            frozen = true;
+        }
+        return this;
+    }
+
     @Override
     public NodeMap copy() {
-        return new NodeMap(this);
+        return frozen ? this : new NodeMap(this);
     }
 
     @Override
     public final byte getType() {
         return TYPE_MAP;
     }
+
+    /**
+     * 解析延迟的映射块.<br>
+     * 读取方法不能声明受检异常, 解析失败时包装成 {@link UncheckedHoconException} 抛出.
+     */
+    private void materialize() {
+        if (deferred != null) {
+            try {
+                parseDeferred(true);
+            } catch (HoconException e) {
+                throw new UncheckedHoconException(e);
+            }
+        }
+    }
+
+    /**
+     * 立即解析延迟的映射块, 没有延迟内容时无操作.<br>
+     * 先解析到旁路映射, 成功后才放入子结点; 解析失败时保持未解析状态, 不会留下解析了一半的内容.
+     *
+     * @param lazy 其中的子映射块是否继续延迟解析
+     * @throws HoconException 解析异常
+     */
+    void parseDeferred(boolean lazy) throws HoconException {
+        if (deferred != null) {
+            synchronized (this) {
+                Deferred block = deferred;
+                if (block != null) {
+                    NodeMap fresh = new NodeMap(options());
+                    Lexer lexer = new Lexer(block.source, 0, block.source.length, block.line, block.inline);
+                    fresh.readValue(lexer, block.keepComments, lazy ? block.source : null);
+                    fresh.value.forEach((key, node) -> {
+                        attach(node, false);
+                        value.put(key, node);
+                    });
+                    deferred = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 立即解析全部延迟的映射块, 包括子映射中的, 用于写出前确保内容完整.
+     *
+     * @throws HoconException 解析异常
+     */
+    void materializeAll() throws HoconException {
+        parseDeferred(false);
+        for (Node node : value.values()) {
+            if (node instanceof NodeMap) {
+                ((NodeMap) node).materializeAll();
+            }
+        }
+    }
+
+    /**
+     * 延迟解析的映射块的源文本.<br>
+     * 每个块持有自己文本的副本, 不引用整个文件的源数组.
+     */
+    private static final class Deferred {
+        private final char[] source;
+        private final int line;
+        private final int inline;
+        private final boolean keepComments;
+
+        private Deferred(char[] source, int line, int inline, boolean keepComments) {
+            this.source = source;
+            this.line = line;
+            this.inline = inline;
+            this.keepComments = keepComments;
+        }
+    }
 }
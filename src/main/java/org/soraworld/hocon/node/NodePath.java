@@ -0,0 +1,196 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的不可变路径, 以 . 分隔.<br>
+ * 与 {@link Paths} 的切分规则相同, 但没有游标, 可以安全地缓存和共享.<br>
+ * 通过 {@link #of(String)} 获取的实例会被缓存, 相同路径字符串重复查找时不再切分.<br>
+ * 路径段是 {@link String}, 哈希值由其自身缓存, 子结点查找时不会重复计算.
+ *
+ * @author Himmelt
+ */
+public final class NodePath {
+
+    /**
+     * 缓存的路径个数上限.<br>
+     * 缓存分新旧两代, 新一代达到上限的一半时整体转为旧一代, 原来的旧一代被丢弃;<br>
+     * 旧一代中再次用到的路径移回新一代, 因此常用路径不会因为缓存满而集中失效.
+     */
+    private static final int CACHE_SIZE = 4096;
+    private static volatile ConcurrentHashMap<String, NodePath> recent = new ConcurrentHashMap<>();
+    private static volatile ConcurrentHashMap<String, NodePath> older = new ConcurrentHashMap<>();
+    static final NodePath EMPTY = new NodePath(new String[0]);
+
+    private final String[] segments;
+    private final int hash;
+
+    private NodePath(@NotNull String[] segments) {
+        this.segments = segments;
+        this.hash = Arrays.hashCode(segments);
+    }
+
+    /**
+     * 获取路径字符串对应的路径.<br>
+     * 以 . 分隔, 末尾的空路径段会被忽略, 与 {@code path.split("\\.")} 相同.
+     *
+     * @param path 路径字符串
+     * @return 路径
+     */
+    public static @NotNull NodePath of(String path) {
+        if (path == null) {
+            return EMPTY;
+        }
+        ConcurrentHashMap<String, NodePath> cache = recent;
+        NodePath cached = cache.get(path);
+        if (cached == null) {
+            cached = older.get(path);
+            if (cached == null) {
+                cached = new NodePath(split(path));
+            }
+            if (cache.size() >= CACHE_SIZE / 2) {
+                cache = rotate(cache);
+            }
+            cache.putIfAbsent(path, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * 新一代缓存已满时转为旧一代.
+     *
+     * @param full 已满的新一代缓存
+     * @return 当前的新一代缓存
+     */
+    private static synchronized ConcurrentHashMap<String, NodePath> rotate(ConcurrentHashMap<String, NodePath> full) {
+        if (recent == full) {
+            older = full;
+            recent = new ConcurrentHashMap<>();
+        }
+        return recent;
+    }
+
+    /**
+     * 由路径段构造路径, 不缓存.<br>
+     * 路径段内的 . 会被替换成下划线 '_'.
+     *
+     * @param segments 路径段
+     * @return 路径
+     */
+    public static @NotNull NodePath of(@NotNull String... segments) {
+        String[] copy = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            copy[i] = segments[i].replace('.', '_');
+        }
+        return new NodePath(copy);
+    }
+
+    /**
+     * 由 {@link Paths} 当前位置之后的路径段构造路径.
+     *
+     * @param paths 路径树
+     * @return 路径
+     */
+    public static @NotNull NodePath of(@NotNull Paths paths) {
+        String[] segments = new String[paths.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = paths.get(i);
+        }
+        return new NodePath(segments);
+    }
+
+    /**
+     * 在末尾追加一个路径段, 路径段原样保留.
+     *
+     * @param segment 路径段
+     * @return 新路径
+     */
+    @NotNull NodePath child(@NotNull String segment) {
+        String[] child = Arrays.copyOf(segments, segments.length + 1);
+        child[segments.length] = segment;
+        return new NodePath(child);
+    }
+
+    /**
+     * 按 . 切分, 与 {@code path.split("\\.")} 结果相同, 但不使用正则.
+     */
+    private static String[] split(String path) {
+        int length = path.length();
+        if (length == 0) {
+            return new String[]{""};
+        }
+        // 去掉末尾的空路径段
+        int end = length;
+        while (end > 0 && path.charAt(end - 1) == '.') {
+            end--;
+        }
+        if (end == 0) {
+            return new String[0];
+        }
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (path.charAt(i) == '.') {
+                count++;
+            }
+        }
+        if (count == 1) {
+            return new String[]{end == length ? path : path.substring(0, end)};
+        }
+        String[] segments = new String[count];
+        int start = 0, index = 0;
+        for (int i = 0; i < end; i++) {
+            if (path.charAt(i) == '.') {
+                segments[index++] = path.substring(start, i);
+                start = i + 1;
+            }
+        }
+        segments[index] = path.substring(start, end);
+        return segments;
+    }
+
+    /**
+     * 路径段个数.
+     *
+     * @return 路径段个数
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * 获取路径段.
+     *
+     * @param index 索引位置
+     * @return 路径段
+     */
+    public @NotNull String get(int index) {
+        return segments[index];
+    }
+
+    /**
+     * 转换成 {@link Paths}.
+     *
+     * @return 路径树
+     */
+    public @NotNull Paths toPaths() {
+        return new Paths(segments.clone());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof NodePath && hash == ((NodePath) obj).hash && Arrays.equals(segments, ((NodePath) obj).segments);
+    }
+
+    @Override
+    public String toString() {
+        return String.join(".", segments);
+    }
+}
@@ -8,6 +8,7 @@ import org.soraworld.hocon.serializer.TypeSerializer;
 import org.soraworld.hocon.serializer.TypeSerializers;
 
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.function.Function;
 
 /**
@@ -21,11 +22,26 @@ public final class Options {
     private boolean seal;
     private boolean debug = false;
     private boolean useDefaultCommentKey = false;
+    private boolean mappedLoad = false;
+    private boolean lazyLoad = false;
+    private boolean parallelLoad = false;
+    private boolean atomicSave = false;
+    private boolean snapshotCache = false;
+    private long saveDelay = 1000;
+    private byte syncMode = SYNC_DATA;
+    private volatile char[][] indents = new char[0][];
     private final Function<String, String>[] translators = new Function[3];
     private final TypeSerializers serializers = new TypeSerializers();
 
     private static final Options DEFAULTS = new Options(true);
     public static final byte COMMENT = 0, READ = 1, WRITE = 2;
+    /**
+     * 原子保存的同步策略.<br>
+     * SYNC_NONE - 不强制写盘, 只保证替换是原子的<br>
+     * SYNC_DATA - 替换前强制写入文件内容<br>
+     * SYNC_ALL - 替换前强制写入文件内容和元数据, 替换后同步所在目录
+     */
+    public static final byte SYNC_NONE = 0, SYNC_DATA = 1, SYNC_ALL = 2;
 
     private Options(boolean seal) {
         this.seal = seal;
@@ -75,9 +91,33 @@ public final class Options {
     public void setIndent(int indent) {
         if (!seal) {
             this.indent = indent;
+            this.indents = new char[0][];
         }
     }
 
+    /**
+     * 获取指定层数的缩进字符.<br>
+     * 按层数缓存, 返回的数组不可修改.
+     *
+     * @param depth 缩进层数
+     * @return 缩进字符
+     */
+    char[] indentChars(int depth) {
+        char[][] cache = indents;
+        if (depth < cache.length) {
+            return cache[depth];
+        }
+        // 复制后整体发布, 并发读取时不会看到未填充的数组
+        char[][] grown = Arrays.copyOf(cache, Math.max(depth + 1, cache.length << 1));
+        for (int i = cache.length; i < grown.length; i++) {
+            char[] chars = new char[Math.max(i * indent, 0)];
+            Arrays.fill(chars, ' ');
+            grown[i] = chars;
+        }
+        indents = grown;
+        return grown[depth];
+    }
+
     /**
      * 是否调试模式.
      *
@@ -99,6 +139,169 @@ public final class Options {
         }
     }
 
+    /**
+     * 是否使用内存映射方式加载文件.
+     *
+     * @return 是否内存映射加载
+     */
+    public boolean isMappedLoad() {
+        return mappedLoad;
+    }
+
+    /**
+     * 设置是否使用内存映射方式加载文件.<br>
+     * 开启后 {@link FileNode#load(boolean, boolean)} 通过 {@link java.nio.channels.FileChannel#map}<br>
+     * 映射文件并直接解码 UTF-8, 适合大文件. 如果配置已封印，则无效.<br>
+     * 映射在缓冲被垃圾回收后才解除, Windows 上此前无法截断或替换该文件, 加载后立即保存同一文件可能失败.
+     *
+     * @param mappedLoad 是否内存映射加载
+     */
+    public void setMappedLoad(boolean mappedLoad) {
+        if (!seal) {
+            this.mappedLoad = mappedLoad;
+        }
+    }
+
+    /**
+     * 是否延迟解析子映射.
+     *
+     * @return 是否延迟解析
+     */
+    public boolean isLazyLoad() {
+        return lazyLoad;
+    }
+
+    /**
+     * 设置是否延迟解析子映射.<br>
+     * 开启后 {@link FileNode#load(boolean, boolean)} 只记录每个 {@code { ... }} 映射块的位置,<br>
+     * 子映射在首次被访问时才会解析, 适合只读取少数几个顶层分区的大文件.<br>
+     * 注意: 子映射的语法错误在访问时才会发现, 以 {@link org.soraworld.hocon.exception.UncheckedHoconException} 抛出,<br>
+     * 该子映射保持未解析状态, 不会保存解析了一半的内容. 需要失败还原的加载仍会立即解析全部内容.<br>
+     * 多个线程同时首次访问同一子映射时只解析一次.<br>
+     * 未解析的子映射各自保存一份自身的源文本(每个字符两字节), 复制的结点共享这份文本, 解析后才释放;<br>
+     * 因此只有少数子映射被访问时才节省内存, 全部访问后内存占用与不延迟解析相当.<br>
+     * 如果配置已封印，则无效.
+     *
+     * @param lazyLoad 是否延迟解析
+     */
+    public void setLazyLoad(boolean lazyLoad) {
+        if (!seal) {
+            this.lazyLoad = lazyLoad;
+        }
+    }
+
+    /**
+     * 是否并行解析顶层映射.
+     *
+     * @return 是否并行解析
+     */
+    public boolean isParallelLoad() {
+        return parallelLoad;
+    }
+
+    /**
+     * 设置是否并行解析顶层映射.<br>
+     * 开启后 {@link FileNode#load(boolean, boolean)} 先扫描出全部顶层 {@code { ... }} 映射块,<br>
+     * 再在 {@link java.util.concurrent.ForkJoinPool#commonPool()} 上并行解析, 结果仍按源文件顺序排列.<br>
+     * 适合含有大量独立顶层映射的大文件. 同时开启延迟解析时此选项无效.<br>
+     * 如果配置已封印，则无效.
+     *
+     * @param parallelLoad 是否并行解析
+     */
+    public void setParallelLoad(boolean parallelLoad) {
+        if (!seal) {
+            this.parallelLoad = parallelLoad;
+        }
+    }
+
+    /**
+     * 是否原子保存.
+     *
+     * @return 是否原子保存
+     */
+    public boolean isAtomicSave() {
+        return atomicSave;
+    }
+
+    /**
+     * 设置是否原子保存.<br>
+     * 开启后 {@link FileNode#save()} 先写入同目录下的临时文件, 再原子替换目标文件,<br>
+     * 保存中途崩溃不会留下写了一半的配置. 如果配置已封印，则无效.
+     *
+     * @param atomicSave 是否原子保存
+     */
+    public void setAtomicSave(boolean atomicSave) {
+        if (!seal) {
+            this.atomicSave = atomicSave;
+        }
+    }
+
+    /**
+     * 获取原子保存的同步策略.
+     *
+     * @return 同步策略
+     */
+    public byte getSyncMode() {
+        return syncMode;
+    }
+
+    /**
+     * 设置原子保存的同步策略.<br>
+     * 高频保存时可降低同步等级, 以持久性换取延迟. 如果配置已封印，则无效.
+     *
+     * @param syncMode 同步策略 {@link #SYNC_NONE} {@link #SYNC_DATA} {@link #SYNC_ALL}
+     */
+    public void setSyncMode(byte syncMode) {
+        if (!seal && syncMode >= SYNC_NONE && syncMode <= SYNC_ALL) {
+            this.syncMode = syncMode;
+        }
+    }
+
+    /**
+     * 是否使用二进制快照缓存.
+     *
+     * @return 是否使用快照缓存
+     */
+    public boolean isSnapshotCache() {
+        return snapshotCache;
+    }
+
+    /**
+     * 设置是否使用二进制快照缓存.<br>
+     * 开启后 {@link FileNode#load(boolean, boolean)} 在源文件旁维护 {@code .<文件名>.snapshot} 缓存文件,<br>
+     * 源文件的 大小 修改时间 内容校验 都一致时直接从快照重建结点树, 跳过文本解析.<br>
+     * 快照失效时照常解析并重写快照, 重写快照会解析全部延迟的子映射. 如果配置已封印，则无效.
+     *
+     * @param snapshotCache 是否使用快照缓存
+     */
+    public void setSnapshotCache(boolean snapshotCache) {
+        if (!seal) {
+            this.snapshotCache = snapshotCache;
+        }
+    }
+
+    /**
+     * 获取异步保存的静默期.
+     *
+     * @return 静默期, 毫秒
+     */
+    public long getSaveDelay() {
+        return saveDelay;
+    }
+
+    /**
+     * 设置异步保存的静默期.<br>
+     * {@link FileNode#saveAsync()} 在最后一次请求之后等待此时长再写入, 期间的请求合并为一次写入.<br>
+     * 如果配置已封印，则无效.
+     *
+     * @param saveDelay 静默期, 毫秒
+     */
+    public void setSaveDelay(long saveDelay) {
+        if (!seal && saveDelay >= 0) {
+            this.saveDelay = saveDelay;
+        }
+    }
+
     public void setUseDefaultCommentKey(boolean useDefaultCommentKey) {
         if (!seal) {
             this.useDefaultCommentKey = useDefaultCommentKey;
@@ -159,6 +362,14 @@ public final class Options {
     }
 
     public String translateComment(String comment, Paths paths) {
+        return translateComment(comment, (Object) paths);
+    }
+
+    public String translateComment(String comment, NodePath path) {
+        return translateComment(comment, (Object) path);
+    }
+
+    private String translateComment(String comment, Object paths) {
         if (translators[COMMENT] != null) {
             if (useDefaultCommentKey && comment.isEmpty()) {
                 return translators[COMMENT].apply("comment." + paths);
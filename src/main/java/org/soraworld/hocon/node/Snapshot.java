@@ -0,0 +1,348 @@
+package org.soraworld.hocon.node;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.soraworld.hocon.exception.HoconException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 结点树的二进制快照.<br>
+ * 作为源文件旁的缓存文件 {@code .<文件名>.snapshot} 存在,<br>
+ * 通过源文件的 大小 修改时间 CRC32 校验, 命中时直接从二进制内容重建结点树, 跳过文本解析.<br>
+ * 先比较大小和修改时间, 都一致时才读取源文件计算 CRC32. 读取时不使用内存映射,<br>
+ * 避免未释放的映射在部分平台上阻止之后对文件的替换.
+ *
+ * @author Himmelt
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x48435331;
+    private static final byte VERSION = 1;
+    /**
+     * 快照文件的最大字节数, 超过时不使用快照.
+     */
+    private static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+    private static final int CRC_BUFFER = 65536;
+
+    private final Path path;
+    private final long size;
+    private final long modified;
+    /**
+     * 源文件的 CRC32, 需要时才计算, 未计算时为 -1.
+     */
+    private long crc = -1;
+
+    private Snapshot(Path path, long size, long modified) {
+        this.path = path;
+        this.size = size;
+        this.modified = modified;
+    }
+
+    /**
+     * 读取源文件的大小和修改时间, 不读取内容.
+     *
+     * @param file 源文件
+     * @return 校验信息
+     * @throws IOException 读取异常
+     */
+    static @NotNull Snapshot stamp(@NotNull File file) throws IOException {
+        Path path = file.toPath();
+        return new Snapshot(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    /**
+     * 源文件的 CRC32, 首次调用时读取源文件计算.
+     *
+     * @return CRC32
+     * @throws IOException 读取异常
+     */
+    private long crc() throws IOException {
+        if (crc < 0) {
+            CRC32 checksum = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(CRC_BUFFER);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    checksum.update(buffer);
+                    buffer.clear();
+                }
+            }
+            crc = checksum.getValue();
+        }
+        return crc;
+    }
+
+    /**
+     * 快照文件.
+     *
+     * @param file 源文件
+     * @return 快照文件
+     */
+    static @NotNull File fileOf(@NotNull File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".snapshot");
+    }
+
+    /**
+     * 尝试从快照加载结点树.<br>
+     * 快照不存在, 校验不通过或已损坏时返回 false, 此时结点内容不变.
+     *
+     * @param node         文件结点
+     * @param keepComments 是否保留注释
+     * @return 是否命中
+     */
+    boolean read(@NotNull FileNode node, boolean keepComments) {
+        File snapshot = fileOf(node.getFile());
+        if (!snapshot.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            // 大小和修改时间一致时才读取源文件计算 CRC32
+            if (buffer.remaining() < 30 || buffer.getInt() != MAGIC || buffer.get() != VERSION
+                    || (buffer.get() != 0) != keepComments || buffer.getLong() != size
+                    || buffer.getLong() != modified || buffer.getLong() != crc()) {
+                return false;
+            }
+            Decoder decoder = new Decoder(buffer, node.options());
+            List<String> heads = decoder.strings();
+            NodeMap root = new NodeMap(node.options());
+            decoder.entries(root);
+            node.moveFrom(root);
+            if (keepComments) {
+                node.replaceHeads(heads);
+            }
+            return true;
+        } catch (Exception e) {
+            if (node.options().isDebug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 写入快照, 先写临时文件再原子替换. 写入失败时只在调试模式下输出.
+     *
+     * @param node         文件结点
+     * @param keepComments 加载时是否保留了注释
+     * @param heads        从源文件读取的头部注释
+     */
+    void write(@NotNull FileNode node, boolean keepComments, @Nullable List<String> heads) {
+        Path target = fileOf(node.getFile()).toPath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            Encoder encoder = new Encoder();
+            encoder.buffer.putInt(MAGIC).put(VERSION).put((byte) (keepComments ? 1 : 0))
+                    .putLong(size).putLong(modified).putLong(crc());
+            encoder.strings(heads);
+            encoder.entries(node);
+            ByteBuffer buffer = encoder.buffer;
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            if (node.options().isDebug()) {
+                e.printStackTrace();
+            }
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 快照编码器.
+     */
+    private static final class Encoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        private void node(Node node) throws HoconException {
+            if (node instanceof NodeMap) {
+                ensure(1).put(AbstractNode.TYPE_MAP);
+                strings(node.getComments());
+                entries((NodeMap) node);
+            } else if (node instanceof NodeList) {
+                ensure(1).put(AbstractNode.TYPE_LIST);
+                strings(node.getComments());
+                NodeList list = (NodeList) node;
+                int size = list.size();
+                varint(size);
+                for (int i = 0; i < size; i++) {
+                    node(list.peek(i));
+                }
+            } else if (node instanceof NodeBase) {
+                ensure(1).put(AbstractNode.TYPE_BASE);
+                strings(node.getComments());
+                string(((NodeBase) node).value);
+            } else {
+                throw new HoconException("Unsupported node type " + node.getClass().getName());
+            }
+        }
+
+        private void entries(NodeMap map) throws HoconException {
+            int count = map.size();
+            varint(count);
+            for (Map.Entry<String, Node> entry : map.value.entrySet()) {
+                string(entry.getKey());
+                node(entry.getValue());
+            }
+        }
+
+        private void strings(List<String> strings) {
+            if (strings == null) {
+                varint(0);
+            } else {
+                varint(strings.size());
+                strings.forEach(this::string);
+            }
+        }
+
+        private void string(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            ensure(bytes.length).put(bytes);
+        }
+
+        private void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private ByteBuffer ensure(int length) {
+            if (buffer.remaining() < length) {
+                int capacity = Math.max(buffer.capacity() << 1, buffer.position() + length);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * 快照解码器.
+     */
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private final Options options;
+        private byte[] bytes = new byte[256];
+
+        private Decoder(ByteBuffer buffer, Options options) {
+            this.buffer = buffer;
+            this.options = options;
+        }
+
+        private Node node() throws HoconException {
+            byte type = buffer.get();
+            List<String> comments = strings();
+            AbstractNode<?> node;
+            switch (type) {
+                case AbstractNode.TYPE_MAP:
+                    NodeMap map = new NodeMap(options);
+                    entries(map);
+                    node = map;
+                    break;
+                case AbstractNode.TYPE_LIST:
+                    NodeList list = new NodeList(options);
+                    int count = varint();
+                    for (int i = 0; i < count; i++) {
+                        list.appendParsed(node());
+                    }
+                    node = list;
+                    break;
+                case AbstractNode.TYPE_BASE:
+                    node = new NodeBase(options, string());
+                    break;
+                default:
+                    throw new HoconException("Broken snapshot, unknown node type " + type);
+            }
+            if (comments != null) {
+                node.setComments(comments);
+            }
+            return node;
+        }
+
+        private void entries(NodeMap map) throws HoconException {
+            int count = varint();
+            for (int i = 0; i < count; i++) {
+                String key = string();
+                Node node = node();
+                map.attach(node, false);
+                map.value.put(key, node);
+            }
+        }
+
+        private List<String> strings() {
+            int count = varint();
+            if (count == 0) {
+                return null;
+            }
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                strings[i] = string();
+            }
+            return new ArrayList<>(Arrays.asList(strings));
+        }
+
+        private String string() {
+            int length = varint();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length << 1)];
+            }
+            buffer.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.soraworld.hocon.serializer;
+
+import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.SerializerException;
+import org.soraworld.hocon.node.NodeList;
+import org.soraworld.hocon.node.Options;
+
+import java.lang.reflect.Type;
+
+/**
+ * 双精度小数数组序列化器.
+ * 以基本类型存储的列表结点读写, 不为每个元素创建结点.
+ *
+ * @author Himmelt
+ */
+final class DoubleArraySerializer extends TypeSerializer<double[], NodeList> {
+    @Override
+    public @NotNull double[] deserialize(@NotNull Type fieldType, @NotNull NodeList node) throws SerializerException {
+        try {
+            return node.toDoubleArray();
+        } catch (NumberFormatException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    @Override
+    public @NotNull NodeList serialize(@NotNull Type fieldType, @NotNull double[] value, @NotNull Options options) {
+        return new NodeList(options, value);
+    }
+}
@@ -0,0 +1,47 @@
+package org.soraworld.hocon.serializer;
+
+import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.SerializerException;
+import org.soraworld.hocon.node.NodeList;
+import org.soraworld.hocon.node.Options;
+
+import java.lang.reflect.Type;
+
+/**
+ * 整数数组序列化器.
+ * 以基本类型存储的列表结点读写, 不为每个元素创建结点.
+ *
+ * @author Himmelt
+ */
+final class IntArraySerializer extends TypeSerializer<int[], NodeList> {
+    @Override
+    public @NotNull int[] deserialize(@NotNull Type fieldType, @NotNull NodeList node) throws SerializerException {
+        long[] numbers;
+        try {
+            numbers = node.toLongArray();
+        } catch (NumberFormatException e) {
+            throw new SerializerException(e);
+        }
+        int[] array = new int[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            array[i] = toInt(numbers[i]);
+        }
+        return array;
+    }
+
+    @Override
+    public @NotNull NodeList serialize(@NotNull Type fieldType, @NotNull int[] value, @NotNull Options options) {
+        long[] numbers = new long[value.length];
+        for (int i = 0; i < value.length; i++) {
+            numbers[i] = value[i];
+        }
+        return new NodeList(options, numbers);
+    }
+
+    static int toInt(long number) throws SerializerException {
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new SerializerException("Number " + number + " is out of int range");
+        }
+        return (int) number;
+    }
+}
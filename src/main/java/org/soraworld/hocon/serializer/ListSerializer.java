@@ -3,6 +3,7 @@ package org.soraworld.hocon.serializer;
 import org.jetbrains.annotations.NotNull;
 import org.soraworld.hocon.exception.HoconException;
 import org.soraworld.hocon.exception.NotMatchException;
+import org.soraworld.hocon.exception.SerializerException;
 import org.soraworld.hocon.node.Node;
 import org.soraworld.hocon.node.NodeList;
 import org.soraworld.hocon.node.Options;
@@ -35,6 +36,28 @@ final class ListSerializer extends TypeSerializer<Collection<?>, NodeList> {
                 }
                 list = new LinkedList<>();
             }
+            if (node.isPrimitive() && KEY != null && KEY.getClass() == NumberSerializer.class) {
+                // 基本类型存储的列表直接读取数值, 不展开成结点
+                if (Long.class.equals(arguments[0]) || Integer.class.equals(arguments[0])
+                        || Short.class.equals(arguments[0]) || Byte.class.equals(arguments[0])) {
+                    long[] numbers;
+                    try {
+                        numbers = node.toLongArray();
+                    } catch (NumberFormatException e) {
+                        throw new SerializerException(e);
+                    }
+                    for (long number : numbers) {
+                        list.add(integer(arguments[0], number));
+                    }
+                    return list;
+                }
+                if (Double.class.equals(arguments[0])) {
+                    for (double number : node.toDoubleArray()) {
+                        list.add(number);
+                    }
+                    return list;
+                }
+            }
             int size = node.size();
             for (int i = 0; i < size; i++) {
                 list.add(KEY.deserialize(arguments[0], node.get(i)));
@@ -49,14 +72,74 @@ final class ListSerializer extends TypeSerializer<Collection<?>, NodeList> {
     public @NotNull NodeList serialize(@NotNull Type fieldType, @NotNull Collection<?> value, @NotNull Options options) throws HoconException {
         Type[] arguments = Reflects.getActualTypes(Collection.class, fieldType);
         if (arguments != null && arguments.length == 1) {
-            NodeList nodeList = new NodeList(options);
             TypeSerializer<Object, Node> ELEMENT = options.getSerializer(arguments[0]);
+            if (ELEMENT != null && ELEMENT.getClass() == NumberSerializer.class && !value.isEmpty()) {
+                NodeList primitive = serializePrimitive(arguments[0], value, options);
+                if (primitive != null) {
+                    return primitive;
+                }
+            }
+            NodeList nodeList = new NodeList(options);
+            boolean fresh = TypeSerializers.isDefault(ELEMENT);
             for (Object obj : value) {
-                nodeList.add(ELEMENT.serialize(arguments[0], obj, options));
+                Node node = ELEMENT.serialize(arguments[0], obj, options);
+                nodeList.addOwned(fresh ? node : node.copy());
             }
             return nodeList;
         } else {
             throw new NotMatchException(getType(), fieldType);
         }
     }
+
+    /**
+     * 长整数转换成对应的整数包装类型, 超出范围时抛出异常.
+     */
+    private static Object integer(Type type, long number) throws SerializerException {
+        if (Long.class.equals(type)) {
+            return number;
+        }
+        if (Integer.class.equals(type)) {
+            return IntArraySerializer.toInt(number);
+        }
+        if (Short.class.equals(type)) {
+            if (number < Short.MIN_VALUE || number > Short.MAX_VALUE) {
+                throw new SerializerException("Number " + number + " is out of short range");
+            }
+            return (short) number;
+        }
+        if (number < Byte.MIN_VALUE || number > Byte.MAX_VALUE) {
+            throw new SerializerException("Number " + number + " is out of byte range");
+        }
+        return (byte) number;
+    }
+
+    /**
+     * 整数和双精度小数集合以基本类型存储的列表结点序列化, 存在 null 元素时返回 null.<br>
+     * 以基本类型存储的整数集合 ({@link Long} {@link Integer} {@link Short} {@link Byte}) 反序列化时同样直接读取数值.
+     */
+    private static NodeList serializePrimitive(Type type, Collection<?> value, Options options) {
+        if (Long.class.equals(type) || Integer.class.equals(type) || Short.class.equals(type) || Byte.class.equals(type)) {
+            long[] numbers = new long[value.size()];
+            int i = 0;
+            for (Object obj : value) {
+                if (obj == null) {
+                    return null;
+                }
+                numbers[i++] = ((Number) obj).longValue();
+            }
+            return new NodeList(options, numbers);
+        }
+        if (Double.class.equals(type)) {
+            double[] numbers = new double[value.size()];
+            int i = 0;
+            for (Object obj : value) {
+                if (obj == null) {
+                    return null;
+                }
+                numbers[i++] = (Double) obj;
+            }
+            return new NodeList(options, numbers);
+        }
+        return null;
+    }
 }
@@ -65,7 +65,10 @@ final class MapSerializer extends TypeSerializer<Map<?, ?>, NodeMap> {
                         if (keySerial.keyAble() && key != null && obj != null) {
                             NodeBase base = (NodeBase) keySerial.serialize(keyS != null ? arguments[0] : key.getClass(), key, options);
                             Node valNode = valSerial.serialize(valS != null ? arguments[1] : obj.getClass(), obj, options);
-                            if (!map.put(base.getString(), valNode)) {
+                            if (!TypeSerializers.isDefault(valSerial)) {
+                                valNode = valNode.copy();
+                            }
+                            if (!map.putOwned(base.getString(), valNode)) {
                                 throw new SerializerException("Node for key <" + base.getString() + "> put failed !");
                             }
                         }
@@ -23,17 +23,17 @@ final class NumberSerializer extends TypeSerializer<Number, NodeBase> {
             Class<?> clazz = Reflects.wrap((Class<?>) fieldType);
             try {
                 if (Integer.class.equals(clazz)) {
-                    return Integer.valueOf(number);
+                    return node.getInt();
                 } else if (Long.class.equals(clazz)) {
-                    return Long.valueOf(number);
+                    return node.getLong();
                 } else if (Short.class.equals(clazz)) {
                     return Short.valueOf(number);
                 } else if (Byte.class.equals(clazz)) {
                     return Byte.valueOf(number);
                 } else if (Float.class.equals(clazz)) {
-                    return Float.valueOf(number);
+                    return node.getFloat();
                 } else if (Double.class.equals(clazz)) {
-                    return Double.valueOf(number);
+                    return node.getDouble();
                 } else {
                     throw new NotMatchException(getType(), fieldType);
                 }
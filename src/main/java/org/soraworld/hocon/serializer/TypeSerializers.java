@@ -25,7 +25,8 @@ public final class TypeSerializers {
     /**
      * 默认顶级序列化器集合，不可修改.<br>
      * 包含 {@link Number},{@link String},{@link Boolean},{@link Map},{@link Enum}<br>
-     * {@link java.util.Collection},{@link org.soraworld.hocon.node.Node},{@link java.io.Serializable}
+     * {@link java.util.Collection},{@link org.soraworld.hocon.node.Node},{@code int[]},{@code long[]},{@code double[]},<br>
+     * {@link java.io.Serializable}
      */
     public static final Map<Type, TypeSerializer<?, ?>> DEFAULT_SERIALIZERS;
 
@@ -47,11 +48,28 @@ public final class TypeSerializers {
         map.put(serializer.getType(), serializer);
         serializer = new NodeSerializer();
         map.put(serializer.getType(), serializer);
+        serializer = new IntArraySerializer();
+        map.put(serializer.getType(), serializer);
+        serializer = new LongArraySerializer();
+        map.put(serializer.getType(), serializer);
+        serializer = new DoubleArraySerializer();
+        map.put(serializer.getType(), serializer);
         serializer = new SerializableSerializer();
         map.put(serializer.getType(), serializer);
         DEFAULT_SERIALIZERS = Collections.unmodifiableMap(map);
     }
 
+    /**
+     * 是否是默认顶级序列化器.<br>
+     * 默认序列化器每次都返回新建的结点, 可以直接转移所有权; 注册的序列化器可能返回共享的结点, 放置时需要复制.
+     *
+     * @param serializer 序列化器
+     * @return 是否是默认序列化器
+     */
+    public static boolean isDefault(@NotNull TypeSerializer<?, ?> serializer) {
+        return DEFAULT_SERIALIZERS.get(serializer.getType()) == serializer;
+    }
+
     /**
      * 获取类型对应的序列化器.
      *
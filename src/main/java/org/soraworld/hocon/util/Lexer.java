@@ -0,0 +1,516 @@
+package org.soraworld.hocon.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.soraworld.hocon.exception.HoconException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 字符级词法分析器.<br>
+ * 直接在字符缓冲区上单遍扫描, 不按行切分字符串,<br>
+ * 只在取用记号文本时才创建字符串, 并记录每个记号的行号和列号.<br>
+ * 同时支持单行内联结构, 如 {@code a = [1, 2, 3]} 或 {@code b {c = 1, d = 2}}.
+ *
+ * @author Himmelt
+ */
+public final class Lexer {
+
+    /**
+     * 记号类型.
+     */
+    public static final byte EOF = 0, NEWLINE = 1, COMMA = 2, ASSIGN = 3, BEGIN_MAP = 4, END_MAP = 5,
+            BEGIN_LIST = 6, END_LIST = 7, TEXT = 8, COMMENT = 9, HEAD = 10;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private long base;
+    private long lineStart;
+    private int line = 1;
+    private int inline;
+    private int tokenLine;
+    private int tokenColumn;
+    private boolean quoted;
+    private int length;
+    private char[] text = new char[64];
+    private long number;
+
+    /**
+     * 实例化一个从 reader 读取的词法分析器.
+     *
+     * @param reader 数据来源
+     */
+    public Lexer(@NotNull Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * 实例化一个直接扫描字符数组的词法分析器.
+     *
+     * @param source 字符数组
+     * @param start  起始位置
+     * @param end    结束位置(不含)
+     */
+    public Lexer(@NotNull char[] source, int start, int end) {
+        this(source, start, end, 1, 0);
+    }
+
+    /**
+     * 实例化一个直接扫描字符数组片段的词法分析器.<br>
+     * 用于从 {@link #offset()} 和 {@link #inlineDepth()} 记录的位置恢复扫描.
+     *
+     * @param source 字符数组
+     * @param start  起始位置
+     * @param end    结束位置(不含)
+     * @param line   起始位置所在行号, 用于异常信息
+     * @param inline 起始位置所在行已打开的内联结构层数
+     */
+    public Lexer(@NotNull char[] source, int start, int end, int line, int inline) {
+        this.reader = null;
+        this.buffer = source;
+        this.position = start;
+        this.limit = end;
+        this.lineStart = start;
+        this.line = line;
+        this.inline = inline;
+    }
+
+    /**
+     * 在 键 的上下文中读取下一个记号.<br>
+     * 此时 '=' 和 '{' 会结束无引号文本.
+     *
+     * @return 记号类型
+     * @throws HoconException 读取异常或字符串未闭合
+     */
+    public byte nextKey() throws HoconException {
+        return next(false, false);
+    }
+
+    /**
+     * 在 值 的上下文中读取下一个记号.<br>
+     * 映射值中的无引号文本读到行尾为止(内联结构中遇到 ',' 也会结束).<br>
+     * 列表元素中的无引号文本遇到 ',' 或 ']' 结束, 且 '#' 开头为注释.
+     *
+     * @param element 是否为列表元素
+     * @return 记号类型
+     * @throws HoconException 读取异常或字符串未闭合
+     */
+    public byte nextValue(boolean element) throws HoconException {
+        return next(true, element);
+    }
+
+    /**
+     * 跳过一个完整的 映射 或 列表 块.<br>
+     * 应在读到 {@link #BEGIN_MAP} 或 {@link #BEGIN_LIST} 之后调用,<br>
+     * 与正式解析使用相同的规则, 但不创建任何结点或字符串.
+     *
+     * @param open 开始记号
+     * @throws HoconException 读取异常
+     */
+    public void skip(byte open) throws HoconException {
+        if (open == BEGIN_MAP) {
+            skipMap();
+        } else if (open == BEGIN_LIST) {
+            skipList();
+        }
+    }
+
+    /**
+     * 最近一个 {@link #TEXT} {@link #COMMENT} {@link #HEAD} 记号的文本.
+     *
+     * @return 文本
+     */
+    public @NotNull String text() {
+        return new String(text, 0, length);
+    }
+
+    /**
+     * 最近一个记号的文本是否与给定字符串相同.<br>
+     * 不会创建新的字符串.
+     *
+     * @param other 比较的字符串
+     * @return 是否相同
+     */
+    public boolean textEquals(@NotNull String other) {
+        if (other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[i] != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最近一个 {@link #TEXT} 记号是否是规范的十进制长整数, 即与 {@link Long#toString(long)} 的结果相同.<br>
+     * 不会创建新的字符串, 是时可通过 {@link #longValue()} 获取数值.
+     *
+     * @return 是否是规范的长整数
+     */
+    public boolean textIsLong() {
+        if (length == 0 || length > 20) {
+            return false;
+        }
+        boolean negative = text[0] == '-';
+        int i = negative ? 1 : 0;
+        if (i == length || text[i] == '0' && (negative || length > 1)) {
+            return false;
+        }
+        // 按负数累加, 可以表示 Long.MIN_VALUE
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9 || result < Long.MIN_VALUE / 10) {
+                return false;
+            }
+            result *= 10;
+            if (result < Long.MIN_VALUE + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                return false;
+            }
+            result = -result;
+        }
+        number = result;
+        return true;
+    }
+
+    /**
+     * 最近一次 {@link #textIsLong()} 返回 true 时的数值.
+     *
+     * @return 数值
+     */
+    public long longValue() {
+        return number;
+    }
+
+    /**
+     * 最近一个 {@link #TEXT} 记号是否带有双引号.
+     *
+     * @return 是否带引号
+     */
+    public boolean isQuoted() {
+        return quoted;
+    }
+
+    /**
+     * 最近一个记号所在行号, 从 1 开始.
+     *
+     * @return 行号
+     */
+    public int line() {
+        return tokenLine;
+    }
+
+    /**
+     * 最近一个记号所在列号, 从 1 开始.
+     *
+     * @return 列号
+     */
+    public int column() {
+        return tokenColumn;
+    }
+
+    /**
+     * 当前行已打开且未关闭的内联结构层数.
+     *
+     * @return 内联层数
+     */
+    public int inlineDepth() {
+        return inline;
+    }
+
+    /**
+     * 当前读取位置相对数据开头的字符偏移量.
+     *
+     * @return 偏移量
+     */
+    public long offset() {
+        return base + position;
+    }
+
+    /**
+     * 以最近一个记号的位置构造异常.
+     *
+     * @param message 异常消息
+     * @return 异常
+     */
+    public @NotNull HoconException error(String message) {
+        return new HoconException(message + " at line " + tokenLine + ", column " + tokenColumn);
+    }
+
+    private byte next(boolean value, boolean element) throws HoconException {
+        int c = skipBlank();
+        tokenLine = line;
+        tokenColumn = (int) (base + position - lineStart) + 1;
+        quoted = false;
+        switch (c) {
+            case -1:
+                return EOF;
+            case '\n':
+                position++;
+                newLine();
+                return NEWLINE;
+            case '\r':
+                position++;
+                if (peek() == '\n') {
+                    position++;
+                }
+                newLine();
+                return NEWLINE;
+            case ',':
+                position++;
+                return COMMA;
+            case '{':
+                position++;
+                inline++;
+                return BEGIN_MAP;
+            case '}':
+                position++;
+                if (inline > 0) {
+                    inline--;
+                }
+                return END_MAP;
+            case '[':
+                position++;
+                inline++;
+                return BEGIN_LIST;
+            case ']':
+                position++;
+                if (inline > 0) {
+                    inline--;
+                }
+                return END_LIST;
+            case '=':
+                if (!value) {
+                    position++;
+                    return ASSIGN;
+                }
+                break;
+            case '#':
+                if (!value || element) {
+                    position++;
+                    return readComment();
+                }
+                break;
+            case '"':
+                position++;
+                readQuoted();
+                return TEXT;
+            default:
+        }
+        readUnquoted(value, element || inline > 0);
+        return TEXT;
+    }
+
+    private void skipMap() throws HoconException {
+        while (true) {
+            byte token = nextKey();
+            switch (token) {
+                case EOF:
+                case END_MAP:
+                case END_LIST:
+                    return;
+                case TEXT:
+                    token = nextKey();
+                    if (token == ASSIGN) {
+                        token = nextValue(false);
+                    }
+                    if (token == BEGIN_MAP) {
+                        skipMap();
+                    } else if (token == BEGIN_LIST) {
+                        skipList();
+                    } else if (token == EOF || token == END_MAP || token == END_LIST) {
+                        return;
+                    }
+                    break;
+                default:
+            }
+        }
+    }
+
+    private void skipList() throws HoconException {
+        while (true) {
+            byte token = nextValue(true);
+            switch (token) {
+                case EOF:
+                case END_MAP:
+                case END_LIST:
+                    return;
+                case BEGIN_MAP:
+                    skipMap();
+                    break;
+                case BEGIN_LIST:
+                    skipList();
+                    break;
+                default:
+            }
+        }
+    }
+
+    private byte readComment() throws HoconException {
+        byte type = COMMENT;
+        int c = peek();
+        if (c == '!') {
+            position++;
+            type = HEAD;
+            c = peek();
+        }
+        if (c == ' ') {
+            position++;
+        }
+        length = 0;
+        int end = 0;
+        while (position < limit || fill()) {
+            char ch = buffer[position];
+            if (ch == '\n' || ch == '\r') {
+                break;
+            }
+            append(ch);
+            position++;
+            if (ch != ' ' && ch != '\t') {
+                end = length;
+            }
+        }
+        length = end;
+        return type;
+    }
+
+    private void readQuoted() throws HoconException {
+        length = 0;
+        quoted = true;
+        while (true) {
+            if (position >= limit && !fill()) {
+                throw error("Unterminated quoted string");
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                if (position >= limit && !fill()) {
+                    throw error("Unterminated quoted string");
+                }
+                char escape = buffer[position++];
+                switch (escape) {
+                    case 'b':
+                        append('\b');
+                        break;
+                    case 'n':
+                        append('\n');
+                        break;
+                    case 'r':
+                        append('\r');
+                        break;
+                    case 't':
+                        append('\t');
+                        break;
+                    case '"':
+                    case '\\':
+                        append(escape);
+                        break;
+                    default:
+                        append('\\');
+                        append(escape);
+                }
+            } else if (c == '\n' || c == '\r') {
+                throw error("Unterminated quoted string");
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    private void readUnquoted(boolean value, boolean separate) throws HoconException {
+        length = 0;
+        int end = 0;
+        loop:
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            switch (c) {
+                case '\n':
+                case '\r':
+                    break loop;
+                case '=':
+                case '{':
+                    if (!value) {
+                        break loop;
+                    }
+                    break;
+                case ',':
+                case '}':
+                case ']':
+                    if (separate) {
+                        break loop;
+                    }
+                    break;
+                default:
+            }
+            append(c);
+            position++;
+            if (c != ' ' && c != '\t') {
+                end = length;
+            }
+        }
+        length = end;
+    }
+
+    private int skipBlank() throws HoconException {
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            if (c != ' ' && c != '\t' && c != '\uFEFF') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private int peek() throws HoconException {
+        return position < limit || fill() ? buffer[position] : -1;
+    }
+
+    private void newLine() {
+        line++;
+        lineStart = base + position;
+        inline = 0;
+    }
+
+    private void append(char c) {
+        if (length == text.length) {
+            char[] grown = new char[length << 1];
+            System.arraycopy(text, 0, grown, 0, length);
+            text = grown;
+        }
+        text[length++] = c;
+    }
+
+    private boolean fill() throws HoconException {
+        if (reader == null) {
+            return false;
+        }
+        try {
+            int count;
+            do {
+                count = reader.read(buffer, 0, buffer.length);
+            } while (count == 0);
+            base += position;
+            position = 0;
+            limit = Math.max(count, 0);
+            return count > 0;
+        } catch (IOException e) {
+            throw new HoconException(e);
+        }
+    }
+}
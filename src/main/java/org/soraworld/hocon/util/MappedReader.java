@@ -0,0 +1,172 @@
+package org.soraworld.hocon.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 内存映射文件的 UTF-8 读取器.<br>
+ * 直接从 {@link MappedByteBuffer} 解码到调用方的字符数组, 不经过中间字节缓冲.<br>
+ * 纯 ASCII 字节走快速路径逐字节拷贝, 非法字节序列替换为 U+FFFD.<br>
+ * 注意: 关闭时只关闭通道并丢弃缓冲引用, 映射要等缓冲被垃圾回收后才真正解除.<br>
+ * 在 Windows 上映射解除前无法截断或替换该文件, 加载后立即保存同一文件可能失败.
+ *
+ * @author Himmelt
+ */
+public final class MappedReader extends Reader {
+
+    /**
+     * 单次映射窗口大小, 超过此大小的文件分段映射.
+     */
+    private static final long WINDOW = 1L << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private long mapped;
+    private MappedByteBuffer buffer;
+    private char pending;
+    private boolean hasPending;
+
+    /**
+     * 实例化读取器, 关闭时会同时关闭通道.
+     *
+     * @param channel 文件通道
+     * @throws IOException 映射异常
+     */
+    public MappedReader(@NotNull FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        map(0);
+    }
+
+    @Override
+    public int read(@NotNull char[] chars, int offset, int length) throws IOException {
+        if (length <= 0) {
+            return 0;
+        }
+        if (buffer == null) {
+            throw new IOException("Stream closed");
+        }
+        int count = 0;
+        if (hasPending) {
+            chars[offset + count++] = pending;
+            hasPending = false;
+        }
+        MappedByteBuffer buffer = this.buffer;
+        while (count < length) {
+            int position = buffer.position();
+            int max = Math.min(buffer.limit() - position, length - count);
+            int i = 0;
+            // ASCII 快速路径
+            while (i < max) {
+                byte b = buffer.get(position + i);
+                if (b < 0) {
+                    break;
+                }
+                chars[offset + count + i] = (char) b;
+                i++;
+            }
+            position += i;
+            count += i;
+            buffer.position(position);
+            if (count >= length) {
+                break;
+            }
+            int remaining = buffer.limit() - position;
+            if (remaining == 0) {
+                if (!remap()) {
+                    break;
+                }
+                buffer = this.buffer;
+                continue;
+            }
+            int lead = buffer.get(position) & 0xFF;
+            int need = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+            if (remaining < need && mapped + buffer.limit() < size) {
+                remap();
+                buffer = this.buffer;
+                continue;
+            }
+            int code = decode(buffer, position, lead, need, remaining);
+            if (code < 0) {
+                chars[offset + count++] = '\uFFFD';
+                buffer.position(position - code);
+            } else {
+                buffer.position(position + need);
+                if (code < 0x10000) {
+                    chars[offset + count++] = (char) code;
+                } else {
+                    chars[offset + count++] = Character.highSurrogate(code);
+                    char low = Character.lowSurrogate(code);
+                    if (count < length) {
+                        chars[offset + count++] = low;
+                    } else {
+                        pending = low;
+                        hasPending = true;
+                    }
+                }
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 丢弃映射缓冲的引用, 读取器本身仍被引用时映射也可以被回收
+        buffer = null;
+        channel.close();
+    }
+
+    /**
+     * 解码一个多字节序列.<br>
+     * 成功返回码点; 失败返回 -n, n 为需要整体替换成 U+FFFD 的字节数(最大合法前缀),<br>
+     * 与 JDK 解码器的替换方式一致.
+     */
+    private static int decode(MappedByteBuffer buffer, int position, int lead, int need, int remaining) {
+        if (need == 1 || lead < 0xC2 || lead > 0xF4) {
+            return -1;
+        }
+        int low = 0x80, high = 0xBF;
+        if (lead == 0xE0) {
+            low = 0xA0;
+        } else if (lead == 0xED) {
+            high = 0x9F;
+        } else if (lead == 0xF0) {
+            low = 0x90;
+        } else if (lead == 0xF4) {
+            high = 0x8F;
+        }
+        int code = need == 2 ? lead & 0x1F : need == 3 ? lead & 0x0F : lead & 0x07;
+        for (int i = 1; i < need; i++) {
+            if (i >= remaining) {
+                return -i;
+            }
+            int b = buffer.get(position + i) & 0xFF;
+            if (b < low || b > high) {
+                return -i;
+            }
+            low = 0x80;
+            high = 0xBF;
+            code = (code << 6) | (b & 0x3F);
+        }
+        return code;
+    }
+
+    private boolean remap() throws IOException {
+        long next = mapped + buffer.position();
+        if (next >= size) {
+            return false;
+        }
+        map(next);
+        return true;
+    }
+
+    private void map(long position) throws IOException {
+        long length = Math.min(WINDOW, size - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        mapped = position;
+    }
+}